@@ -0,0 +1,2 @@
+# ScanPublisher 依赖的 reactive-streams 是可选依赖
+-dontwarn org.reactivestreams.**
@@ -0,0 +1,69 @@
+package media.helper;
+
+import android.database.Cursor;
+
+/**
+ * 基准测试使用的实体类型，读取 {@link FakeCursor#audio(int)} 中的 10 列数据。
+ */
+final class BenchmarkSong {
+    final int id;
+    final String title;
+    final String artist;
+    final int artistId;
+    final String album;
+    final int albumId;
+    final int duration;
+    final int size;
+    final String mimeType;
+    final int dateAdded;
+
+    BenchmarkSong(int id, String title, String artist, int artistId, String album, int albumId,
+                  int duration, int size, String mimeType, int dateAdded) {
+        this.id = id;
+        this.title = title;
+        this.artist = artist;
+        this.artistId = artistId;
+        this.album = album;
+        this.albumId = albumId;
+        this.duration = duration;
+        this.size = size;
+        this.mimeType = mimeType;
+        this.dateAdded = dateAdded;
+    }
+
+    /**
+     * {@link #decode(Cursor)} 每一行都按列名查找列索引，{@link #decode(Cursor, MediaStoreHelper.Columns)}
+     * 则使用缓存的列索引，两者解码得到的结果相同。
+     */
+    static final class Decoder extends MediaStoreHelper.Decoder<BenchmarkSong> {
+        @Override
+        public BenchmarkSong decode(Cursor cursor) {
+            return new BenchmarkSong(
+                    getId(cursor),
+                    getTitle(cursor),
+                    getAudioArtist(cursor),
+                    getAudioArtistId(cursor),
+                    getAudioAlbum(cursor),
+                    getAudioAlbumId(cursor),
+                    getDuration(cursor),
+                    getSize(cursor),
+                    getMimeType(cursor),
+                    getDateAdded(cursor));
+        }
+
+        @Override
+        public BenchmarkSong decode(Cursor cursor, MediaStoreHelper.Columns columns) {
+            return new BenchmarkSong(
+                    getId(cursor, columns),
+                    getTitle(cursor, columns),
+                    getAudioArtist(cursor, columns),
+                    getAudioArtistId(cursor, columns),
+                    getAudioAlbum(cursor, columns),
+                    getAudioAlbumId(cursor, columns),
+                    getDuration(cursor, columns),
+                    getSize(cursor, columns),
+                    getMimeType(cursor, columns),
+                    getDateAdded(cursor, columns));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package media.helper;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.RunnerException;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 运行 JMH 基准测试，并将优化后的实现与修改前的实现（基线）进行对比，性能回退时测试会失败。
+ */
+public class BenchmarkTest {
+    @Test
+    public void columns_fasterThanColumnIndexOrThrow() throws RunnerException {
+        Map<String, RunResult> results = Benchmarks.run(ColumnsBenchmark.class);
+
+        assertFaster(results, "columns", "columnIndexOrThrow");
+    }
+
+    @Test
+    public void sampledClock_fasterThanPerRowClock() throws RunnerException {
+        Map<String, RunResult> results = Benchmarks.run(ProgressBenchmark.class);
+
+        assertFaster(results, "sampledClock", "perRowClock");
+    }
+
+    @Test
+    public void scan_recordsResults() throws RunnerException {
+        Map<String, RunResult> results = Benchmarks.run(ScanBenchmark.class);
+
+        // 没有可以对比的基线，只检查结果已被记录
+        assertRecorded(results, "decodeLoop", "scanBlocking", "iterate", "scan", "scanStreaming");
+    }
+
+    @Test
+    public void headsetHook_recordsResults() throws RunnerException {
+        Map<String, RunResult> results = Benchmarks.run(HeadsetHookBenchmark.class);
+
+        assertRecorded(results, "headsetHookClick", "otherKey");
+    }
+
+    private static void assertFaster(Map<String, RunResult> results, String benchmark, String baseline) {
+        double score = Benchmarks.score(results, benchmark);
+        double baselineScore = Benchmarks.score(results, baseline);
+
+        assertTrue(benchmark + ": " + score + ", " + baseline + ": " + baselineScore, score < baselineScore);
+    }
+
+    private static void assertRecorded(Map<String, RunResult> results, String... benchmarks) {
+        for (String benchmark : benchmarks) {
+            assertTrue(benchmark, Benchmarks.score(results, benchmark) > 0);
+        }
+    }
+}
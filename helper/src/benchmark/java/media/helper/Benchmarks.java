@@ -0,0 +1,68 @@
+package media.helper;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 在单元测试中运行 JMH 基准测试。
+ * <p>
+ * 基准测试在当前 JVM 中运行（不 fork 新的进程），以便使用单元测试的 classpath 与 android.jar；每个基准的
+ * 结果会以 JSON 格式保存到 {@code build/reports/jmh/} 目录中，CI 可以将其作为构建产物保存下来对比。
+ */
+final class Benchmarks {
+    private static final File RESULTS_DIR = new File("build/reports/jmh");
+
+    private Benchmarks() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 运行 benchmark 类中的所有基准。
+     *
+     * @return 基准方法名到运行结果的映射
+     */
+    static Map<String, RunResult> run(Class<?> benchmark) throws RunnerException {
+        if (!RESULTS_DIR.isDirectory() && !RESULTS_DIR.mkdirs()) {
+            throw new IllegalStateException("can't create " + RESULTS_DIR);
+        }
+
+        Options options = new OptionsBuilder()
+                .include(Pattern.quote(benchmark.getName()) + "\\.")
+                .forks(0)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(200))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.milliseconds(200))
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(RESULTS_DIR, benchmark.getSimpleName() + ".json").getPath())
+                .build();
+
+        Map<String, RunResult> results = new HashMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            String name = result.getParams().getBenchmark();
+            results.put(name.substring(name.lastIndexOf('.') + 1), result);
+        }
+        return results;
+    }
+
+    /**
+     * 返回基准的得分（单位由基准类的 OutputTimeUnit 决定）。
+     */
+    static double score(Map<String, RunResult> results, String benchmark) {
+        RunResult result = results.get(benchmark);
+        if (result == null) {
+            throw new IllegalArgumentException("no result for benchmark: " + benchmark);
+        }
+        return result.getPrimaryResult().getScore();
+    }
+}
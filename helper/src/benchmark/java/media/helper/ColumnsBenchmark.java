@@ -0,0 +1,78 @@
+package media.helper;
+
+import android.database.Cursor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static media.helper.MediaStoreHelper.Decoder.*;
+
+/**
+ * Decoder 静态 getter 方法的基准测试：对比每一行都调用 getColumnIndexOrThrow 查找列索引与使用
+ * {@link MediaStoreHelper.Columns} 缓存列索引时，每一行读取 10 列的耗时。
+ * <p>
+ * 读取的都是不会进行字符串去重的列，因此两者的差异只来自列索引的查找。结果为每一行的平均耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ColumnsBenchmark.ROWS)
+public class ColumnsBenchmark {
+    static final int ROWS = 50_000;
+
+    private FakeCursor mCursor;
+
+    @Setup
+    public void setUp() {
+        mCursor = FakeCursor.audio(ROWS);
+    }
+
+    @Benchmark
+    public void columnIndexOrThrow(Blackhole blackhole) {
+        Cursor cursor = mCursor;
+
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            blackhole.consume(getId(cursor)
+                    + getAudioArtistId(cursor)
+                    + getAudioAlbumId(cursor)
+                    + getDuration(cursor)
+                    + getSize(cursor)
+                    + getDateAdded(cursor)
+                    + getDateModified(cursor)
+                    + getAudioTrack(cursor)
+                    + getAudioYear(cursor));
+            blackhole.consume(getTitle(cursor));
+        }
+    }
+
+    @Benchmark
+    public void columns(Blackhole blackhole) {
+        Cursor cursor = mCursor;
+        // 与扫描器一样，每个 Cursor 创建一个 Columns 对象
+        MediaStoreHelper.Columns columns = new MediaStoreHelper.Columns(cursor);
+
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            blackhole.consume(getId(cursor, columns)
+                    + getAudioArtistId(cursor, columns)
+                    + getAudioAlbumId(cursor, columns)
+                    + getDuration(cursor, columns)
+                    + getSize(cursor, columns)
+                    + getDateAdded(cursor, columns)
+                    + getDateModified(cursor, columns)
+                    + getAudioTrack(cursor, columns)
+                    + getAudioYear(cursor, columns));
+            blackhole.consume(getTitle(cursor, columns));
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package media.helper;
+
+import android.view.KeyEvent;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link HeadsetHookHelper} 处理一次按键事件的耗时。
+ * <p>
+ * 单元测试中无法构造 Intent 与 KeyEvent，因此直接调用解析 Intent 之后的 {@link HeadsetHookHelper#handleKeyEvent(int, int)}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HeadsetHookBenchmark {
+    private HeadsetHookHelper mHelper;
+
+    @Setup
+    public void setUp() {
+        mHelper = new HeadsetHookHelper(new HeadsetHookHelper.OnHeadsetHookClickListener() {
+            @Override
+            public void onHeadsetHookClicked(int clickCount) {
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        // 取消还未触发的点击计时器
+        mHelper.handleKeyEvent(KeyEvent.KEYCODE_MEDIA_PLAY_PAUSE, KeyEvent.ACTION_UP);
+    }
+
+    /**
+     * 按下并松开 Headset Hook 按钮，每次松开都会重新开始点击计时。
+     */
+    @Benchmark
+    public boolean headsetHookClick() {
+        mHelper.handleKeyEvent(KeyEvent.KEYCODE_HEADSETHOOK, KeyEvent.ACTION_DOWN);
+        return mHelper.handleKeyEvent(KeyEvent.KEYCODE_HEADSETHOOK, KeyEvent.ACTION_UP);
+    }
+
+    /**
+     * 其他媒体按钮事件，只会重置点击计数。
+     */
+    @Benchmark
+    public boolean otherKey() {
+        return mHelper.handleKeyEvent(KeyEvent.KEYCODE_MEDIA_PLAY_PAUSE, KeyEvent.ACTION_UP);
+    }
+}
@@ -0,0 +1,92 @@
+package media.helper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式扫描时每一行的进度通知与分批开销的基准测试：对比每一行都读取两次时钟（进度通知与批次超时检查各一次）
+ * 与每 32 行才读取一次时钟（BaseScanner.ScanTask 当前的实现）时，每一行的平均耗时。
+ * <p>
+ * 单元测试中的 SystemClock 是空实现，因此这里使用 {@link System#nanoTime()} 作为单调时钟。两个基准使用相同
+ * 的更新阈值、批次大小与批次延迟，只有读取时钟的频率不同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ProgressBenchmark.ROWS)
+public class ProgressBenchmark {
+    static final int ROWS = 50_000;
+
+    private static final int CHECK_INTERVAL = 32;
+    private static final int BATCH_SIZE = MediaStoreHelper.Scanner.DEFAULT_BATCH_SIZE;
+    private static final long THRESHOLD_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(MediaStoreHelper.Scanner.MIN_UPDATE_THRESHOLD);
+    private static final long LATENCY_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(MediaStoreHelper.Scanner.DEFAULT_MAX_BATCH_LATENCY);
+
+    @Benchmark
+    public void perRowClock(Blackhole blackhole) {
+        long lastUpdateTime = 0;
+        List<Integer> batch = null;
+        long batchStartTime = 0;
+
+        for (int row = 0; row < ROWS; row++) {
+            long currentTime = System.nanoTime();
+            if (currentTime - lastUpdateTime >= THRESHOLD_NANOS) {
+                lastUpdateTime = currentTime;
+                blackhole.consume(row);
+            }
+
+            if (batch == null) {
+                batch = new ArrayList<>(BATCH_SIZE);
+                batchStartTime = System.nanoTime();
+            }
+
+            batch.add(row);
+            if (batch.size() >= BATCH_SIZE || System.nanoTime() - batchStartTime >= LATENCY_NANOS) {
+                blackhole.consume(batch);
+                batch = null;
+            }
+        }
+    }
+
+    @Benchmark
+    public void sampledClock(Blackhole blackhole) {
+        long lastUpdateTime = 0;
+        int rowsSinceProgressCheck = 0;
+        List<Integer> batch = null;
+        long batchStartTime = 0;
+
+        for (int row = 0; row < ROWS; row++) {
+            if (rowsSinceProgressCheck++ % CHECK_INTERVAL == 0) {
+                long currentTime = System.nanoTime();
+                if (currentTime - lastUpdateTime >= THRESHOLD_NANOS) {
+                    lastUpdateTime = currentTime;
+                    blackhole.consume(row);
+                }
+            }
+
+            if (batch == null) {
+                batch = new ArrayList<>(BATCH_SIZE);
+                batchStartTime = System.nanoTime();
+            }
+
+            batch.add(row);
+            if (batch.size() >= BATCH_SIZE
+                    || (batch.size() % CHECK_INTERVAL == 0 && System.nanoTime() - batchStartTime >= LATENCY_NANOS)) {
+                blackhole.consume(batch);
+                batch = null;
+            }
+        }
+    }
+}
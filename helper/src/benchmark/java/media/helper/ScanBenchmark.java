@@ -0,0 +1,127 @@
+package media.helper;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BaseScanner 扫描吞吐量的基准测试，结果为每一行的平均耗时。
+ * <p>
+ * 查询结果来自 {@link FakeContentResolver}，扫描任务在调用线程中同步执行。单元测试中的 Handler 是空实现，
+ * 因此异步扫描的结果不会被传递给回调接口，测得的是扫描线程一侧（查询、遍历、解码与发送消息）的耗时。
+ * {@link #decodeLoop(Blackhole)} 直接遍历 Cursor 并解码，作为扫描器开销的对照。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(ScanBenchmark.ROWS)
+public class ScanBenchmark {
+    static final int ROWS = 50_000;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private ContentResolver mResolver;
+    private BenchmarkSong.Decoder mDecoder;
+
+    @Setup
+    public void setUp() {
+        mResolver = FakeContentResolver.of(FakeCursor.audio(ROWS));
+        mDecoder = new BenchmarkSong.Decoder();
+    }
+
+    @Benchmark
+    public void decodeLoop(Blackhole blackhole) {
+        Cursor cursor = mResolver.query(null, null, null, null, null);
+        try {
+            List<BenchmarkSong> items = new ArrayList<>(cursor.getCount());
+            MediaStoreHelper.Columns columns = new MediaStoreHelper.Columns(cursor);
+            while (cursor.moveToNext()) {
+                items.add(mDecoder.decode(cursor, columns));
+            }
+            blackhole.consume(items);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Benchmark
+    public List<BenchmarkSong> scanBlocking() {
+        return MediaStoreHelper.scanAudio(mResolver, mDecoder)
+                .scanBlocking();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        MediaStoreHelper.ScanIterator<BenchmarkSong> iterator = MediaStoreHelper.scanAudio(mResolver, mDecoder)
+                .iterate();
+        try {
+            while (iterator.hasNext()) {
+                blackhole.consume(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+    }
+
+    @Benchmark
+    public void scan() {
+        // 扫描结果不会被传递（见类注释），因此每次都使用一个新的扫描器
+        MediaStoreHelper.scanAudio(mResolver, mDecoder)
+                .executor(DIRECT_EXECUTOR)
+                .scan(new MediaStoreHelper.OnScanCallback<BenchmarkSong>() {
+                    @Override
+                    public void onStartScan() {
+                    }
+
+                    @Override
+                    public void onUpdateProgress(int progress, int max, BenchmarkSong item) {
+                    }
+
+                    @Override
+                    public void onFinished(List<BenchmarkSong> items) {
+                    }
+                });
+    }
+
+    @Benchmark
+    public void scanStreaming() {
+        MediaStoreHelper.scanAudio(mResolver, mDecoder)
+                .executor(DIRECT_EXECUTOR)
+                .scan(new MediaStoreHelper.OnStreamScanCallback<BenchmarkSong>() {
+                    @Override
+                    public void onStartScan() {
+                    }
+
+                    @Override
+                    public void onUpdateProgress(int progress, int max, BenchmarkSong item) {
+                    }
+
+                    @Override
+                    public void onItems(List<BenchmarkSong> items, int offset) {
+                    }
+
+                    @Override
+                    public void onFinished(List<BenchmarkSong> items) {
+                    }
+                });
+    }
+}
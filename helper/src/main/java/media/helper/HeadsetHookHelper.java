@@ -6,6 +6,7 @@ import android.os.Looper;
 import android.view.KeyEvent;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import java.util.Timer;
 import java.util.TimerTask;
@@ -75,8 +76,13 @@ public class HeadsetHookHelper {
             return false;
         }
 
-        if (keyEvent.getKeyCode() == KeyEvent.KEYCODE_HEADSETHOOK) {
-            consumeMediaButtonEvent(keyEvent);
+        return handleKeyEvent(keyEvent.getKeyCode(), keyEvent.getAction());
+    }
+
+    @VisibleForTesting
+    boolean handleKeyEvent(int keyCode, int action) {
+        if (keyCode == KeyEvent.KEYCODE_HEADSETHOOK) {
+            consumeMediaButtonEvent(action);
             return true;
         }
 
@@ -85,8 +91,8 @@ public class HeadsetHookHelper {
         return false;
     }
 
-    private void consumeMediaButtonEvent(KeyEvent keyEvent) {
-        if (keyEvent.getAction() == KeyEvent.ACTION_UP) {
+    private void consumeMediaButtonEvent(int action) {
+        if (action == KeyEvent.ACTION_UP) {
             mClickCounter.putEvent();
         }
     }
@@ -0,0 +1,281 @@
+package media.helper;
+
+import android.provider.MediaStore;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 类型安全的、可组合的过滤条件，会被编译为参数化的 selection 与 selectionArgs。
+ * <p>
+ * 使用 MediaFilter 可以让过滤在 ContentProvider 的 SQLite 中完成，而不是在解码所有行之后再在 Java 中过滤，
+ * 从而减少需要跨进程传递的行数。所有的值都通过 selectionArgs 传递，不会被拼接到 selection 中。
+ * <p>
+ * MediaFilter 是不可变的，组合操作总是返回新的对象。
+ * <p>
+ * 例：扫描时长超过 30 秒的音乐，并排除铃声目录中的文件：
+ * <pre>
+ * MediaFilter filter = MediaFilter.isMusic()
+ *         .and(MediaFilter.durationAtLeast(30_000))
+ *         .and(MediaFilter.not(MediaFilter.pathContains("/Ringtones/")));
+ *
+ * filter.applyTo(MediaStoreHelper.scanAudio(resolver, decoder))
+ *         .scan(callback);
+ * </pre>
+ */
+public final class MediaFilter {
+    private final String mSelection;
+    private final String[] mSelectionArgs;
+
+    private MediaFilter(String selection, String... selectionArgs) {
+        mSelection = selection;
+        mSelectionArgs = selectionArgs;
+    }
+
+    /**
+     * 只保留音乐（{@code IS_MUSIC != 0}）。
+     */
+    public static MediaFilter isMusic() {
+        return isTrue(MediaStore.Audio.AudioColumns.IS_MUSIC);
+    }
+
+    /**
+     * 只保留铃声（{@code IS_RINGTONE != 0}）。
+     */
+    public static MediaFilter isRingtone() {
+        return isTrue(MediaStore.Audio.AudioColumns.IS_RINGTONE);
+    }
+
+    /**
+     * 只保留闹钟铃声（{@code IS_ALARM != 0}）。
+     */
+    public static MediaFilter isAlarm() {
+        return isTrue(MediaStore.Audio.AudioColumns.IS_ALARM);
+    }
+
+    /**
+     * 只保留通知铃声（{@code IS_NOTIFICATION != 0}）。
+     */
+    public static MediaFilter isNotification() {
+        return isTrue(MediaStore.Audio.AudioColumns.IS_NOTIFICATION);
+    }
+
+    /**
+     * 只保留播客（{@code IS_PODCAST != 0}）。
+     */
+    public static MediaFilter isPodcast() {
+        return isTrue(MediaStore.Audio.AudioColumns.IS_PODCAST);
+    }
+
+    /**
+     * 时长不小于 millis 毫秒。
+     */
+    public static MediaFilter durationAtLeast(long millis) {
+        return compare(MediaStore.MediaColumns.DURATION, ">=", millis);
+    }
+
+    /**
+     * 时长不大于 millis 毫秒。
+     */
+    public static MediaFilter durationAtMost(long millis) {
+        return compare(MediaStore.MediaColumns.DURATION, "<=", millis);
+    }
+
+    /**
+     * 文件大小不小于 bytes 字节。
+     */
+    public static MediaFilter sizeAtLeast(long bytes) {
+        return compare(MediaStore.MediaColumns.SIZE, ">=", bytes);
+    }
+
+    /**
+     * 文件大小不大于 bytes 字节。
+     */
+    public static MediaFilter sizeAtMost(long bytes) {
+        return compare(MediaStore.MediaColumns.SIZE, "<=", bytes);
+    }
+
+    /**
+     * 添加时间不早于 seconds（自 1970-01-01 起的秒数）。
+     */
+    public static MediaFilter dateAddedAtLeast(long seconds) {
+        return compare(MediaStore.MediaColumns.DATE_ADDED, ">=", seconds);
+    }
+
+    /**
+     * 添加时间不晚于 seconds（自 1970-01-01 起的秒数）。
+     */
+    public static MediaFilter dateAddedAtMost(long seconds) {
+        return compare(MediaStore.MediaColumns.DATE_ADDED, "<=", seconds);
+    }
+
+    /**
+     * MIME 类型为 mimeTypes 中的任意一个。
+     *
+     * @param mimeTypes MIME 类型，例如 {@code "audio/mpeg"}，不能为空
+     */
+    public static MediaFilter mimeType(@NonNull String... mimeTypes) {
+        ObjectUtil.requireNonNull(mimeTypes);
+        if (mimeTypes.length == 0) {
+            throw new IllegalArgumentException("mimeTypes must not be empty.");
+        }
+
+        StringBuilder selection = new StringBuilder(MediaStore.MediaColumns.MIME_TYPE).append(" IN (");
+        for (int i = 0; i < mimeTypes.length; i++) {
+            ObjectUtil.requireNonNull(mimeTypes[i]);
+            selection.append(i == 0 ? "?" : ",?");
+        }
+        selection.append(')');
+
+        return new MediaFilter(selection.toString(), mimeTypes.clone());
+    }
+
+    /**
+     * MIME 类型以 prefix 开头，例如 {@code "audio/"}。
+     */
+    public static MediaFilter mimeTypeStartsWith(@NonNull String prefix) {
+        ObjectUtil.requireNonNull(prefix);
+        return like(MediaStore.MediaColumns.MIME_TYPE, escapeLike(prefix) + "%");
+    }
+
+    /**
+     * 文件路径（{@code DATA} 列）中包含 text。
+     * <p>
+     * 注意！从 Android 10 开始，{@code DATA} 列已被废弃，但目前仍然可以用于查询。
+     */
+    @SuppressWarnings("deprecation")
+    public static MediaFilter pathContains(@NonNull String text) {
+        ObjectUtil.requireNonNull(text);
+        return like(MediaStore.MediaColumns.DATA, "%" + escapeLike(text) + "%");
+    }
+
+    /**
+     * 文件路径（{@code DATA} 列）以 prefix 开头。
+     * <p>
+     * 注意！从 Android 10 开始，{@code DATA} 列已被废弃，但目前仍然可以用于查询。
+     */
+    @SuppressWarnings("deprecation")
+    public static MediaFilter pathStartsWith(@NonNull String prefix) {
+        ObjectUtil.requireNonNull(prefix);
+        return like(MediaStore.MediaColumns.DATA, escapeLike(prefix) + "%");
+    }
+
+    /**
+     * 对过滤条件取反。
+     */
+    public static MediaFilter not(@NonNull MediaFilter filter) {
+        ObjectUtil.requireNonNull(filter);
+        return new MediaFilter("NOT (" + filter.mSelection + ")", filter.mSelectionArgs);
+    }
+
+    /**
+     * 所有过滤条件都满足。
+     */
+    public static MediaFilter allOf(@NonNull MediaFilter... filters) {
+        return combine(" AND ", filters);
+    }
+
+    /**
+     * 任意一个过滤条件满足。
+     */
+    public static MediaFilter anyOf(@NonNull MediaFilter... filters) {
+        return combine(" OR ", filters);
+    }
+
+    /**
+     * 当前过滤条件与 other 都满足。
+     */
+    public MediaFilter and(@NonNull MediaFilter other) {
+        return allOf(this, other);
+    }
+
+    /**
+     * 当前过滤条件与 other 满足其一。
+     */
+    public MediaFilter or(@NonNull MediaFilter other) {
+        return anyOf(this, other);
+    }
+
+    /**
+     * 编译后的 selection。
+     */
+    @NonNull
+    public String getSelection() {
+        return mSelection;
+    }
+
+    /**
+     * 编译后的 selectionArgs，与 {@link #getSelection()} 中的 {@code ?} 一一对应。
+     */
+    @NonNull
+    public String[] getSelectionArgs() {
+        return mSelectionArgs.clone();
+    }
+
+    /**
+     * 将过滤条件设置为扫描器的 selection 与 selectionArgs。
+     * <p>
+     * <b>注意：</b>该方法会替换（而不是合并）扫描器已有的 selection 与 selectionArgs，之前通过
+     * {@link MediaStoreHelper.Scanner#selection(String)} 设置的条件将不再生效。如果需要同时使用多个过滤条件，
+     * 请先使用 {@link #and(MediaFilter)} 或 {@link #allOf(MediaFilter...)} 将它们组合为一个 MediaFilter，
+     * 再调用该方法。
+     *
+     * @return 扫描器本身
+     */
+    public <T> MediaStoreHelper.Scanner<T> applyTo(@NonNull MediaStoreHelper.Scanner<T> scanner) {
+        ObjectUtil.requireNonNull(scanner);
+        return scanner.selection(mSelection)
+                .selectionArgs(getSelectionArgs());
+    }
+
+    @Override
+    public String toString() {
+        return "MediaFilter{" + mSelection + ", " + Arrays.toString(mSelectionArgs) + "}";
+    }
+
+    private static MediaFilter isTrue(String column) {
+        return new MediaFilter(column + "!=0");
+    }
+
+    private static MediaFilter compare(String column, String operator, long value) {
+        return new MediaFilter(column + operator + "?", String.valueOf(value));
+    }
+
+    private static MediaFilter like(String column, String pattern) {
+        return new MediaFilter(column + " LIKE ? ESCAPE '\\'", pattern);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
+    private static MediaFilter combine(String operator, MediaFilter[] filters) {
+        ObjectUtil.requireNonNull(filters);
+        if (filters.length == 0) {
+            throw new IllegalArgumentException("filters must not be empty.");
+        }
+
+        if (filters.length == 1) {
+            return ObjectUtil.requireNonNull(filters[0]);
+        }
+
+        StringBuilder selection = new StringBuilder();
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < filters.length; i++) {
+            MediaFilter filter = ObjectUtil.requireNonNull(filters[i]);
+            if (i > 0) {
+                selection.append(operator);
+            }
+            selection.append('(').append(filter.mSelection).append(')');
+            Collections.addAll(args, filter.mSelectionArgs);
+        }
+
+        return new MediaFilter(selection.toString(), args.toArray(new String[0]));
+    }
+}
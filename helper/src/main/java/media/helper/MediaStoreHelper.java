@@ -2,23 +2,58 @@ package media.helper;
 
 import android.content.ContentResolver;
 import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.core.content.ContentResolverCompat;
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
 
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 用于帮助扫描本地的音频、视频和图片媒体。
@@ -30,27 +65,258 @@ import java.util.concurrent.TimeUnit;
  *     <li>{@link MediaStoreHelper#scanAudio(ContentResolver, Decoder)}：扫描音频文件</li>
  *     <li>{@link MediaStoreHelper#scanVideo(ContentResolver, Decoder)}：扫描视频文件</li>
  *     <li>{@link MediaStoreHelper#scanImages(ContentResolver, Decoder)}：扫描图片文件</li>
+ *     <li>{@link MediaStoreHelper#scanCombined(ContentResolver, Decoder, Decoder, Decoder)}：在一次查询中同时扫描
+ *     音频、视频与图片文件</li>
  * </ul>
  */
 public final class MediaStoreHelper {
-    private static Executor mExecutor = new ThreadPoolExecutor(
-            Runtime.getRuntime().availableProcessors(),
-            Runtime.getRuntime().availableProcessors() * 2,
-            0L, TimeUnit.MILLISECONDS,
-            new LinkedBlockingQueue<Runnable>(),
-            new ThreadFactory() {
-                @Override
-                public Thread newThread(Runnable r) {
-                    Thread thread = new Thread(r);
-                    thread.setDaemon(true);
-                    return thread;
-                }
-            });
+    /**
+     * 默认线程池的任务队列的容量。
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    private static volatile Executor mExecutor = createDefaultExecutor();
+
+    // 每隔多少行检查一次是否需要通知扫描进度
+    private static final int PROGRESS_CHECK_INTERVAL = 32;
+
+    // 并行解码时每个行快照包含的行数
+    private static final int DECODE_CHUNK_SIZE = 128;
+    private static ExecutorService mDecodeExecutor;
+
+    // 扫描结果缓存，为 null 时表示未开启
+    private static volatile ScanResultCache mResultCache;
 
     private MediaStoreHelper() {
         throw new AssertionError();
     }
 
+    /**
+     * 设置所有扫描器默认使用的 Executor。
+     * <p>
+     * 默认的 Executor 是一个有界的线程池：核心线程数为 CPU 核心数，最大线程数为 CPU 核心数的 2 倍，任务队列的
+     * 容量为 {@link #DEFAULT_QUEUE_CAPACITY}，空闲线程会在 30 秒后被回收。线程池中的线程以
+     * {@code THREAD_PRIORITY_BACKGROUND} 优先级运行，避免与音频渲染线程竞争 CPU。当线程池与任务队列都已满时，
+     * 扫描器的 {@code scan()} 方法会抛出 {@link RejectedExecutionException} 异常。
+     * <p>
+     * 也可以调用扫描器的 {@code executor(Executor)} 方法为单个扫描器设置 Executor。
+     *
+     * @param executor Executor 对象，为 null 时表示恢复为默认的 Executor
+     */
+    public static void setExecutor(@Nullable Executor executor) {
+        mExecutor = executor == null ? createDefaultExecutor() : executor;
+    }
+
+    /**
+     * 开启或关闭扫描过程的 systrace/Perfetto 区段，默认关闭。
+     * <p>
+     * 开启后，扫描器会在查询（{@code MediaStoreHelper.query}）、Cursor 遍历（{@code MediaStoreHelper.iterate}）、
+     * 并行解码（{@code MediaStoreHelper.decode}）与主线程中的结果传递（{@code MediaStoreHelper.deliver}）前后添加
+     * 区段。在 Android 10 及以上版本中，每次扫描的整个过程还会被记录为一个异步区段（{@code MediaStoreHelper.scan}）。
+     * 区段需要 Android 4.3（API 18）及以上版本。关闭时开销可以忽略不计。
+     * <p>
+     * 默认 Executor 中的扫描线程与解码线程分别被命名为 {@code MediaStoreHelper-scan-N} 与
+     * {@code MediaStoreHelper-decode-N}。
+     *
+     * @param enabled 是否开启
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        ScanTrace.setEnabled(enabled);
+    }
+
+    /**
+     * 开启扫描结果缓存。
+     * <p>
+     * 开启后，非分页、非流式且没有设置性能指标监听器的扫描在完成后，其扫描结果会被缓存在内存中。之后再次执行
+     * 相同的扫描（Uri、projection、selection、selectionArgs、sortOrder 与 Decoder 都相同）时，会直接返回缓存的
+     * 扫描结果，不会再查询 ContentProvider。例如，在多个标签页之间来回切换时，每个标签页的扫描都可以立即完成。
+     * <p>
+     * 缓存的总大小由各 Decoder 的 {@link Decoder#estimateSize(Object)} 方法估算，超过 maxSize 时会淘汰最久未使用
+     * 的扫描结果。缓存会为扫描过的每个 Uri 注册一个 ContentObserver，Uri 中的数据发生变化时，该 Uri 的所有扫描
+     * 结果都会失效。
+     * <p>
+     * 注意！Decoder 是通过 equals 方法比较的。默认情况下，只有使用同一个 Decoder 对象的扫描才能共享缓存，
+     * 如果希望同一类型的不同 Decoder 对象也能共享缓存，可以覆盖 Decoder 的 equals 与 hashCode 方法。
+     * <p>
+     * 如果已经开启了扫描结果缓存，则会先关闭旧的缓存。
+     *
+     * @param context Context 对象，不能为 null
+     * @param maxSize 缓存的最大大小（单位：字节），必须大于 0
+     * @see #disableResultCache()
+     * @see #clearResultCache()
+     */
+    public static synchronized void enableResultCache(@NonNull Context context, long maxSize) {
+        ObjectUtil.requireNonNull(context);
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0.");
+        }
+
+        disableResultCache();
+        mResultCache = new ScanResultCache(context.getApplicationContext().getContentResolver(), maxSize);
+    }
+
+    /**
+     * 关闭扫描结果缓存，并注销缓存注册的所有 ContentObserver。
+     */
+    public static synchronized void disableResultCache() {
+        ScanResultCache cache = mResultCache;
+        mResultCache = null;
+
+        if (cache != null) {
+            cache.release();
+        }
+    }
+
+    /**
+     * 清空缓存的所有扫描结果。如果没有开启扫描结果缓存，则什么也不做。
+     */
+    public static void clearResultCache() {
+        ScanResultCache cache = mResultCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private static Executor createDefaultExecutor() {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                cores,
+                cores * 2,
+                30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(DEFAULT_QUEUE_CAPACITY),
+                new BackgroundThreadFactory("MediaStoreHelper-scan"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static synchronized ExecutorService getDecodeExecutor() {
+        if (mDecodeExecutor == null) {
+            int cores = Runtime.getRuntime().availableProcessors();
+
+            // 任务队列的长度受扫描线程的 maxInFlight 限制，因此可以使用无界队列
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    cores,
+                    cores,
+                    30L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(),
+                    new BackgroundThreadFactory("MediaStoreHelper-decode"));
+
+            executor.allowCoreThreadTimeOut(true);
+            mDecodeExecutor = executor;
+        }
+
+        return mDecodeExecutor;
+    }
+
+    private static <V> V getUninterruptibly(Future<V> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final String mNamePrefix;
+        private final AtomicInteger mThreadNumber = new AtomicInteger();
+
+        BackgroundThreadFactory(String namePrefix) {
+            mNamePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable r) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    // 线程优先级只能在线程内部设置
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    r.run();
+                }
+            }, mNamePrefix + "-" + mThreadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class DecodeTask<T> implements Callable<List<T>> {
+        private Decoder<T> mDecoder;
+        private RowSnapshotCursor mChunk;
+        private StringPool mStringPool;
+        private ScanMetrics.Recorder mMetrics;
+
+        DecodeTask(Decoder<T> decoder,
+                   RowSnapshotCursor chunk,
+                   StringPool stringPool,
+                   @Nullable ScanMetrics.Recorder metrics) {
+            mDecoder = decoder;
+            mChunk = chunk;
+            mStringPool = stringPool;
+            mMetrics = metrics;
+        }
+
+        @Override
+        public List<T> call() {
+            boolean traced = ScanTrace.begin(ScanTrace.DECODE);
+            try {
+                return decodeChunk();
+            } finally {
+                ScanTrace.end(traced);
+            }
+        }
+
+        private List<T> decodeChunk() {
+            List<T> items = new ArrayList<>(mChunk.getCount());
+            if (!mChunk.moveToFirst()) {
+                return items;
+            }
+
+            Columns columns = new Columns(mChunk, mStringPool);
+            if (mMetrics == null) {
+                do {
+                    items.add(mDecoder.decode(mChunk, columns));
+                } while (mChunk.moveToNext());
+                return items;
+            }
+
+            // 先在本地记录解码耗时，解码完成后再一次性合并，避免在每一行都竞争锁
+            long decodeTime = 0;
+            long[] histogram = new long[ScanMetrics.DECODE_HISTOGRAM_BUCKETS];
+            do {
+                long start = System.nanoTime();
+                items.add(mDecoder.decode(mChunk, columns));
+                long nanos = System.nanoTime() - start;
+
+                decodeTime += nanos;
+                histogram[ScanMetrics.Recorder.bucketOf(nanos)]++;
+            } while (mChunk.moveToNext());
+
+            mMetrics.mergeDecodeTimes(decodeTime, histogram);
+            return items;
+        }
+    }
+
     /**
      * 扫描本地的音频文件。
      *
@@ -96,6 +362,162 @@ public final class MediaStoreHelper {
         return new ImagesScanner<>(resolver, decoder);
     }
 
+    /**
+     * 扫描本地的音频文件，并将扫描结果保存到列式结构的 {@link AudioTable} 中。
+     * <p>
+     * 与 {@link #scanAudio(ContentResolver, Decoder)} 不同，该方法不会为每个音频文件创建实体对象，适用于需要
+     * 在内存中保存大型媒体库的场景。
+     *
+     * @param resolver ContentResolver 对象，不能为 null
+     * @return {@link AudioTableScanner} 对象，调用该对象的 {@code scan()} 方法即可开始扫描本地音频文件
+     */
+    public static AudioTableScanner scanAudioTable(@NonNull ContentResolver resolver) {
+        ObjectUtil.requireNonNull(resolver);
+
+        return new AudioTableScanner(resolver);
+    }
+
+    /**
+     * 在一次查询中同时扫描本地的音频、视频与图片文件。
+     * <p>
+     * 与分别调用 {@link #scanAudio(ContentResolver, Decoder)}、{@link #scanVideo(ContentResolver, Decoder)} 与
+     * {@link #scanImages(ContentResolver, Decoder)} 相比，只需要一次 ContentProvider 查询与一次 Cursor 遍历。
+     * 不需要扫描的媒体类型的 Decoder 可以为 null，但至少要指定一个 Decoder。
+     *
+     * @param resolver      ContentResolver 对象，不能为 null
+     * @param audioDecoder  音频文件的 {@link Decoder} 对象，为 null 时不扫描音频文件
+     * @param videoDecoder  视频文件的 {@link Decoder} 对象，为 null 时不扫描视频文件
+     * @param imagesDecoder 图片文件的 {@link Decoder} 对象，为 null 时不扫描图片文件
+     * @return {@link CombinedScanner} 对象，调用该对象的 {@code scan()} 方法即可开始扫描本地媒体文件
+     * @throws IllegalArgumentException 如果三个 Decoder 都为 null
+     */
+    public static <A, V, I> CombinedScanner<A, V, I> scanCombined(@NonNull ContentResolver resolver,
+                                                                  @Nullable Decoder<A> audioDecoder,
+                                                                  @Nullable Decoder<V> videoDecoder,
+                                                                  @Nullable Decoder<I> imagesDecoder) {
+        ObjectUtil.requireNonNull(resolver);
+
+        if (audioDecoder == null && videoDecoder == null && imagesDecoder == null) {
+            throw new IllegalArgumentException("at least one decoder must be provided.");
+        }
+
+        return new CombinedScanner<>(resolver, audioDecoder, videoDecoder, imagesDecoder);
+    }
+
+    /**
+     * 并行扫描所有外部存储卷（例如内部存储、SD 卡、USB 存储设备）上的音频文件。
+     *
+     * @param context Context 对象，不能为 null
+     * @param decoder {@link Decoder} 对象，不能为 null
+     * @param <T>     媒体文件对应的实体类型
+     * @return {@link MultiVolumeScanner} 对象，调用该对象的 {@code scan()} 方法即可开始扫描本地媒体文件
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public static <T> MultiVolumeScanner<T> scanAudioVolumes(@NonNull Context context, @NonNull Decoder<T> decoder) {
+        ObjectUtil.requireNonNull(context);
+        ObjectUtil.requireNonNull(decoder);
+
+        return new MultiVolumeScanner<>(context, decoder, new VolumeUriFactory() {
+            @Override
+            public Uri getContentUri(String volumeName) {
+                return MediaStore.Audio.Media.getContentUri(volumeName);
+            }
+        });
+    }
+
+    /**
+     * 并行扫描所有外部存储卷（例如内部存储、SD 卡、USB 存储设备）上的视频文件。
+     *
+     * @param context Context 对象，不能为 null
+     * @param decoder {@link Decoder} 对象，不能为 null
+     * @param <T>     媒体文件对应的实体类型
+     * @return {@link MultiVolumeScanner} 对象，调用该对象的 {@code scan()} 方法即可开始扫描本地媒体文件
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public static <T> MultiVolumeScanner<T> scanVideoVolumes(@NonNull Context context, @NonNull Decoder<T> decoder) {
+        ObjectUtil.requireNonNull(context);
+        ObjectUtil.requireNonNull(decoder);
+
+        return new MultiVolumeScanner<>(context, decoder, new VolumeUriFactory() {
+            @Override
+            public Uri getContentUri(String volumeName) {
+                return MediaStore.Video.Media.getContentUri(volumeName);
+            }
+        });
+    }
+
+    /**
+     * 并行扫描所有外部存储卷（例如内部存储、SD 卡、USB 存储设备）上的图片文件。
+     *
+     * @param context Context 对象，不能为 null
+     * @param decoder {@link Decoder} 对象，不能为 null
+     * @param <T>     媒体文件对应的实体类型
+     * @return {@link MultiVolumeScanner} 对象，调用该对象的 {@code scan()} 方法即可开始扫描本地媒体文件
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public static <T> MultiVolumeScanner<T> scanImagesVolumes(@NonNull Context context, @NonNull Decoder<T> decoder) {
+        ObjectUtil.requireNonNull(context);
+        ObjectUtil.requireNonNull(decoder);
+
+        return new MultiVolumeScanner<>(context, decoder, new VolumeUriFactory() {
+            @Override
+            public Uri getContentUri(String volumeName) {
+                return MediaStore.Images.Media.getContentUri(volumeName);
+            }
+        });
+    }
+
+    /**
+     * 增量扫描本地的音频文件。
+     *
+     * @param resolver ContentResolver 对象，不能为 null
+     * @param decoder  {@link Decoder} 对象，不能为 null
+     * @param <T>      媒体文件对应的实体类型
+     * @return {@link IncrementalScanner} 对象，每次调用该对象的 {@code scan()} 方法都只会扫描自上次扫描以来
+     * 发生变化的媒体文件
+     */
+    public static <T> IncrementalScanner<T> scanAudioIncrementally(@NonNull ContentResolver resolver,
+                                                                   @NonNull Decoder<T> decoder) {
+        ObjectUtil.requireNonNull(resolver);
+        ObjectUtil.requireNonNull(decoder);
+
+        return new IncrementalScanner<>(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, resolver, decoder);
+    }
+
+    /**
+     * 增量扫描本地的视频文件。
+     *
+     * @param resolver ContentResolver 对象，不能为 null
+     * @param decoder  {@link Decoder} 对象，不能为 null
+     * @param <T>      媒体文件对应的实体类型
+     * @return {@link IncrementalScanner} 对象，每次调用该对象的 {@code scan()} 方法都只会扫描自上次扫描以来
+     * 发生变化的媒体文件
+     */
+    public static <T> IncrementalScanner<T> scanVideoIncrementally(@NonNull ContentResolver resolver,
+                                                                   @NonNull Decoder<T> decoder) {
+        ObjectUtil.requireNonNull(resolver);
+        ObjectUtil.requireNonNull(decoder);
+
+        return new IncrementalScanner<>(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, resolver, decoder);
+    }
+
+    /**
+     * 增量扫描本地的图片文件。
+     *
+     * @param resolver ContentResolver 对象，不能为 null
+     * @param decoder  {@link Decoder} 对象，不能为 null
+     * @param <T>      媒体文件对应的实体类型
+     * @return {@link IncrementalScanner} 对象，每次调用该对象的 {@code scan()} 方法都只会扫描自上次扫描以来
+     * 发生变化的媒体文件
+     */
+    public static <T> IncrementalScanner<T> scanImagesIncrementally(@NonNull ContentResolver resolver,
+                                                                    @NonNull Decoder<T> decoder) {
+        ObjectUtil.requireNonNull(resolver);
+        ObjectUtil.requireNonNull(decoder);
+
+        return new IncrementalScanner<>(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, resolver, decoder);
+    }
+
     /**
      * 扫描器。
      *
@@ -106,9 +528,13 @@ public final class MediaStoreHelper {
      */
     public interface Scanner<T> {
         int MIN_UPDATE_THRESHOLD = 200;
+        int DEFAULT_BATCH_SIZE = 200;
+        int DEFAULT_MAX_BATCH_LATENCY = 100;
 
         /**
          * 设置 ContentResolver.query 方法的 projection 部分参数。
+         * <p>
+         * 如果没有设置 projection，则会使用 {@link Decoder#requiredColumns()} 方法返回的列作为 projection。
          */
         Scanner<T> projection(String[] projection);
 
@@ -136,16 +562,191 @@ public final class MediaStoreHelper {
         Scanner<T> updateThreshold(int threshold);
 
         /**
-         * 取消扫描。
+         * 设置分页扫描时每页的大小。
+         * <p>
+         * 分页扫描时，每次只查询 pageSize 行数据（Android 11 及以上版本使用 {@code QUERY_ARG_LIMIT}/
+         * {@code QUERY_ARG_OFFSET} 参数，低版本在 sortOrder 后追加 {@code LIMIT/OFFSET} 子句），避免一次
+         * 查询整张表。如果回调接口是 {@link OnStreamScanCallback}，则每页的扫描结果会通过
+         * {@link OnStreamScanCallback#onItems(List, int)} 方法分批传递，而不会在内存中累积全部扫描结果。
+         * <p>
+         * 分页扫描时，如果没有设置 sortOrder，则会默认按 {@code _id} 升序排序，以保证分页结果的稳定性。
+         *
+         * @param pageSize 每页的大小，小于等于 0 时表示不分页（默认）
+         */
+        Scanner<T> pageSize(int pageSize);
+
+        /**
+         * 设置流式扫描时每批扫描结果的最大数量，默认为 {@link #DEFAULT_BATCH_SIZE}。
+         * <p>
+         * 仅在回调接口是 {@link OnStreamScanCallback} 时有效。分页扫描时，每页的最后一批扫描结果会在该页扫描完
+         * 后立即传递，不会与下一页合并。
+         *
+         * @param batchSize 每批扫描结果的最大数量，不能小于 1
+         */
+        Scanner<T> batchSize(int batchSize);
+
+        /**
+         * 设置流式扫描时每批扫描结果的最大延迟时间（单位：毫秒），默认为 {@link #DEFAULT_MAX_BATCH_LATENCY}。
+         * <p>
+         * 仅在回调接口是 {@link OnStreamScanCallback} 时有效。如果自当前批次的第一个扫描结果产生起已经过了
+         * latency 毫秒，那么即使当前批次未满，也会立即将其传递给回调接口，从而保证扫描结果能够及时显示。
+         * 为了避免每一行都读取时钟，每 32 行才会检查一次是否超时。
+         *
+         * @param latency 每批扫描结果的最大延迟时间，不能小于 0
+         */
+        Scanner<T> maxBatchLatency(int latency);
+
+        /**
+         * 设置用于执行扫描任务的 Executor。
+         *
+         * @param executor Executor 对象，为 null 时使用 {@link MediaStoreHelper#setExecutor(Executor)} 方法设置的
+         *                 Executor
+         */
+        Scanner<T> executor(@Nullable Executor executor);
+
+        /**
+         * 设置并行解码的并行度，默认为 1（不并行解码）。
+         * <p>
+         * 并行度大于 1 时，扫描线程只负责将 Cursor 的行数据复制到轻量的行快照中，解码工作则交由解码线程池并行完成，
+         * 扫描结果的顺序保持不变。适用于解码开销较大（例如需要解析标签、构建显示字符串或计算排序键）的 Decoder。
+         * <p>
+         * <b>注意！并行解码时，Decoder 的 decode 方法会在多个线程中同时被调用，因此 Decoder 必须是线程安全的。</b>
+         *
+         * @param parallelism 并行度，不能小于 1
+         */
+        Scanner<T> decodeParallelism(int parallelism);
+
+        /**
+         * 设置性能指标监听器。
+         * <p>
+         * 设置监听器后，扫描器会在每次扫描完成时（在 onFinished 方法之后）在主线程中调用监听器，报告本次扫描的
+         * 查询耗时、首行延迟、行数、解码耗时分布、CursorWindow 填充次数等性能指标。记录性能指标会带来少量额外的
+         * 开销，未设置监听器时不会记录任何指标。
+         * <p>
+         * 设置了监听器的扫描不会与其他相同的扫描共享 Cursor 遍历，以保证报告的指标只属于本次扫描。
+         *
+         * @param listener 性能指标监听器，为 null 时不记录性能指标
+         */
+        Scanner<T> metricsListener(@Nullable OnScanMetricsListener listener);
+
+        /**
+         * 取消扫描。被取消的扫描不会调用回调接口的 onFinished 方法，即使扫描结果已经产生但还未传递给回调接口。
+         * <p>
+         * 在 Android 4.1（API 16）及以上版本中，如果 ContentProvider 端的查询仍在执行，该查询会被中止。
          */
         void cancel();
 
         /**
          * 开始扫描。
+         * <p>
+         * 扫描器可以被重复使用：上一次扫描结束（或被取消）后，可以再次调用该方法开始新的扫描。如果查询或解码时
+         * 抛出了异常（例如 Decoder 抛出了异常），那么该异常会在执行扫描的线程中抛出，本次扫描会像被取消一样结束，
+         * 不会调用回调接口的 onFinished 方法，之后同样可以再次调用该方法开始新的扫描。
          *
          * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
          */
         void scan(@NonNull OnScanCallback<T> callback);
+
+        /**
+         * 在当前线程中同步扫描，并返回所有扫描结果。
+         * <p>
+         * 同步扫描不会使用 Executor，不会向主线程发送任何消息，也不会调用任何回调接口，适用于本身已经运行在后台线程
+         * 中的任务（例如 WorkManager 的 Worker）。分页、批量、进度与并行解码相关的配置会被忽略，同步扫描也不受
+         * {@link #cancel()} 方法的影响。
+         * <p>
+         * <b>注意！不要在主线程中调用该方法。</b>
+         */
+        @WorkerThread
+        @NonNull
+        List<T> scanBlocking();
+
+        /**
+         * 在当前线程中执行查询，并返回一个按需解码扫描结果的迭代器。
+         * <p>
+         * 只有在调用迭代器的 {@code next()} 方法时才会解码对应的行。与 {@link #scanBlocking()} 方法一样，该方法
+         * 不会使用 Executor，也不会向主线程发送任何消息。迭代器使用完毕后必须调用 {@link ScanIterator#close()}
+         * 方法关闭底层的 Cursor。
+         * <p>
+         * <b>注意！不要在主线程中调用该方法。</b>
+         */
+        @WorkerThread
+        @NonNull
+        ScanIterator<T> iterate();
+    }
+
+    /**
+     * 扫描结果的迭代器。
+     * <p>
+     * 迭代器持有底层的 Cursor，遍历结束时会自动关闭 Cursor；如果提前结束遍历，则必须调用 {@link #close()} 方法。
+     * 迭代器不是线程安全的，也不支持 {@code remove()} 方法。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see Scanner#iterate()
+     */
+    public interface ScanIterator<T> extends Iterator<T>, Closeable {
+        /**
+         * 关闭底层的 Cursor。该方法可以被多次调用。
+         */
+        @Override
+        void close();
+    }
+
+    private static final class CursorScanIterator<T> implements ScanIterator<T> {
+        private Cursor mCursor;
+        private Decoder<T> mDecoder;
+        private Columns mColumns;
+        private boolean mHasNext;
+
+        CursorScanIterator(@Nullable Cursor cursor, Decoder<T> decoder, StringPool stringPool) {
+            mCursor = cursor;
+            mDecoder = decoder;
+            mHasNext = cursor != null && cursor.moveToFirst();
+
+            if (mHasNext) {
+                mColumns = new Columns(cursor, stringPool);
+            } else {
+                close();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mHasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!mHasNext) {
+                throw new NoSuchElementException();
+            }
+
+            T item = mDecoder.decode(mCursor, mColumns);
+
+            mHasNext = mCursor.moveToNext();
+            if (!mHasNext) {
+                close();
+            }
+
+            return item;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            mHasNext = false;
+            mColumns = null;
+
+            if (mCursor != null) {
+                mCursor.close();
+                mCursor = null;
+            }
+        }
     }
 
     /**
@@ -163,7 +764,7 @@ public final class MediaStoreHelper {
          * 更新扫描进度。
          *
          * @param progress 当前扫描进度
-         * @param max      最大扫描进度
+         * @param max      最大扫描进度。分页扫描时无法预先得知最大扫描进度，此时该值为 -1
          * @param item     当前扫描到的媒体文件对应的实体对象
          */
         void onUpdateProgress(int progress, int max, T item);
@@ -176,12 +777,52 @@ public final class MediaStoreHelper {
         void onFinished(List<T> items);
     }
 
+    /**
+     * 流式扫描回调接口，用于分批接收扫描结果。
+     * <p>
+     * 使用该回调接口时，扫描结果会通过 {@link #onItems(List, int)} 方法分批传递，扫描器不会在内存中累积全部
+     * 扫描结果，因此 {@link #onFinished(List)} 方法的 items 参数始终是一个空列表。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see Scanner#pageSize(int)
+     * @see Scanner#batchSize(int)
+     * @see Scanner#maxBatchLatency(int)
+     */
+    public interface OnStreamScanCallback<T> extends OnScanCallback<T> {
+        /**
+         * 接收一批扫描结果。
+         *
+         * @param items  本批次扫描到的媒体文件
+         * @param offset 本批次的第一个媒体文件在全部扫描结果中的位置
+         */
+        void onItems(List<T> items, int offset);
+    }
+
+    /**
+     * 扫描性能指标监听器。
+     *
+     * @see Scanner#metricsListener(OnScanMetricsListener)
+     */
+    public interface OnScanMetricsListener {
+        /**
+         * 扫描完成时调用，该方法会在主线程中调用。
+         *
+         * @param metrics 本次扫描的性能指标
+         */
+        void onScanMetrics(ScanMetrics metrics);
+    }
+
     /**
      * 解码器，用于将 Cursor 中扫描到的媒体文件转换成对应的实体对象。
      *
      * @param <T> 媒体文件对应的实体类型
      */
     public static abstract class Decoder<T> {
+        /**
+         * {@link #estimateSize(Object)} 方法的默认返回值（单位：字节）。
+         */
+        public static final int DEFAULT_ITEM_SIZE = 256;
+
         /**
          * 将 Cursor 中当前 index 处的行数据转换成对应的实体对象。
          *
@@ -190,194 +831,601 @@ public final class MediaStoreHelper {
          */
         public abstract T decode(Cursor cursor);
 
-        public static int getDateAdded(Cursor cursor) {
-            return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_ADDED));
-        }
-
-        public static int getDateModified(Cursor cursor) {
-            return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED));
+        /**
+         * 将 Cursor 中当前 index 处的行数据转换成对应的实体对象。
+         * <p>
+         * 扫描器会调用该方法进行解码，默认实现会直接调用 {@link #decode(Cursor)} 方法。子类可以覆盖该方法，
+         * 并使用接收 {@link Columns} 参数的静态方法（例如 {@link #getTitle(Cursor, Columns)}）读取行数据，
+         * 避免每一行都按列名查找列索引。
+         *
+         * @param cursor  Cursor 对象。Cursor 的 index 已自动设置好，无需手动设置。
+         * @param columns 当前 Cursor 的列索引缓存
+         * @return 行数据对应的实体对象
+         */
+        public T decode(Cursor cursor, Columns columns) {
+            return decode(cursor);
+        }
+
+        /**
+         * 声明解码时需要读取的列。
+         * <p>
+         * 如果扫描器没有设置 projection，则会使用该方法的返回值作为 ContentResolver.query 方法的 projection
+         * 参数，从而只查询解码时需要的列，减少 CursorWindow 的填充量与跨进程传输的数据量。默认实现返回 null，
+         * 表示查询所有列。
+         * <p>
+         * <b>例：</b><br>
+         * <code>
+         * <pre>
+         * &#64;Override
+         * public String[] requiredColumns() {
+         *     return new String[]{
+         *             MediaStore.Audio.Media._ID,
+         *             MediaStore.Audio.Media.TITLE,
+         *             MediaStore.Audio.Media.DURATION
+         *     };
+         * }
+         * </pre>
+         * </code>
+         *
+         * @return 解码时需要读取的列，返回 null 表示查询所有列
+         */
+        @Nullable
+        public String[] requiredColumns() {
+            return null;
+        }
+
+        /**
+         * 估算一个实体对象占用的内存大小（单位：字节）。
+         * <p>
+         * 开启扫描结果缓存（{@link MediaStoreHelper#enableResultCache(Context, long)}）后，会使用该方法的返回值
+         * 计算扫描结果的大小，从而限制缓存的总大小。默认实现返回 {@link #DEFAULT_ITEM_SIZE}，子类可以根据实体
+         * 对象的字段覆盖该方法，以获得更准确的估算值。
+         *
+         * @param item 解码得到的实体对象
+         * @return 估算的大小（单位：字节）
+         */
+        public int estimateSize(T item) {
+            return DEFAULT_ITEM_SIZE;
+        }
+
+        public static int getDateAdded(Cursor cursor) {
+            return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_ADDED));
+        }
+
+        public static int getDateAdded(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.DATE_ADDED));
+        }
+
+        public static int getDateModified(Cursor cursor) {
+            return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_MODIFIED));
+        }
+
+        public static int getDateModified(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.DATE_MODIFIED));
         }
 
         public static String getDisplayName(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DISPLAY_NAME));
         }
 
+        public static String getDisplayName(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.DISPLAY_NAME));
+        }
+
         public static String getMimeType(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.MIME_TYPE));
         }
 
+        public static String getMimeType(Cursor cursor, Columns columns) {
+            return columns.intern(cursor.getString(columns.indexOf(Columns.MIME_TYPE)));
+        }
+
         public static int getSize(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.SIZE));
         }
 
+        public static int getSize(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.SIZE));
+        }
+
         public static int getDuration(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DURATION));
         }
 
+        public static int getDuration(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.DURATION));
+        }
+
         public static String getTitle(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.TITLE));
         }
 
+        public static String getTitle(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.TITLE));
+        }
+
         public static int getId(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.MediaColumns._ID));
         }
 
+        public static int getId(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.ID));
+        }
+
         public static String getAudioArtist(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST));
         }
 
+        public static String getAudioArtist(Cursor cursor, Columns columns) {
+            return columns.intern(cursor.getString(columns.indexOf(Columns.ARTIST)));
+        }
+
         public static int getAudioArtistId(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.ARTIST_ID));
         }
 
+        public static int getAudioArtistId(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.ARTIST_ID));
+        }
+
         public static String getAudioAlbum(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.ALBUM));
         }
 
+        public static String getAudioAlbum(Cursor cursor, Columns columns) {
+            return columns.intern(cursor.getString(columns.indexOf(Columns.ALBUM)));
+        }
+
         public static int getAudioAlbumId(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.ALBUM_ID));
         }
 
+        public static int getAudioAlbumId(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.ALBUM_ID));
+        }
+
         public static boolean audioIsAlarm(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_ALARM)) != 0;
         }
 
+        public static boolean audioIsAlarm(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_ALARM)) != 0;
+        }
+
         @RequiresApi(Build.VERSION_CODES.Q)
         public static boolean audioIsAudioBook(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_AUDIOBOOK)) != 0;
         }
 
+        @RequiresApi(Build.VERSION_CODES.Q)
+        public static boolean audioIsAudioBook(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_AUDIOBOOK)) != 0;
+        }
+
         public static boolean audioIsMusic(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_MUSIC)) != 0;
         }
 
+        public static boolean audioIsMusic(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_MUSIC)) != 0;
+        }
+
         public static boolean audioIsNotification(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_NOTIFICATION)) != 0;
         }
 
+        public static boolean audioIsNotification(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_NOTIFICATION)) != 0;
+        }
+
         @RequiresApi(api = Build.VERSION_CODES.Q)
         public static boolean audioIsPending(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_PENDING)) != 0;
         }
 
+        @RequiresApi(api = Build.VERSION_CODES.Q)
+        public static boolean audioIsPending(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_PENDING)) != 0;
+        }
+
         public static boolean audioIsPodcast(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_PODCAST)) != 0;
         }
 
+        public static boolean audioIsPodcast(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_PODCAST)) != 0;
+        }
+
         public static boolean audioIsRingtone(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.IS_RINGTONE)) != 0;
         }
 
+        public static boolean audioIsRingtone(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_RINGTONE)) != 0;
+        }
+
         public static int getAudioTrack(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.TRACK));
         }
 
+        public static int getAudioTrack(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.TRACK));
+        }
+
         public static int getAudioYear(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Audio.AudioColumns.YEAR));
         }
 
+        public static int getAudioYear(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.YEAR));
+        }
+
         public static Uri getAudioUri(Cursor cursor) {
             return ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, getId(cursor));
         }
 
+        public static Uri getAudioUri(Cursor cursor, Columns columns) {
+            return ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, getId(cursor, columns));
+        }
+
         @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
         public static int getVideoWidth(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.WIDTH));
         }
 
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        public static int getVideoWidth(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.WIDTH));
+        }
+
         @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
         public static int getVideoHeight(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.HEIGHT));
         }
 
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        public static int getVideoHeight(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.HEIGHT));
+        }
+
         public static String getVideoCategory(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.CATEGORY));
         }
 
+        public static String getVideoCategory(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.CATEGORY));
+        }
+
         public static String getVideoColorRange(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.DESCRIPTION));
         }
 
+        public static String getVideoColorRange(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.DESCRIPTION));
+        }
+
         public static boolean videoIsPrivate(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.IS_PRIVATE)) != 0;
         }
 
+        public static boolean videoIsPrivate(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_PRIVATE)) != 0;
+        }
+
         public static String getVideoLanguage(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.LANGUAGE));
         }
 
+        public static String getVideoLanguage(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.LANGUAGE));
+        }
+
         @Deprecated
         public static float getVideoLatitude(Cursor cursor) {
             return cursor.getFloat(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.LATITUDE));
         }
 
+        @Deprecated
+        public static float getVideoLatitude(Cursor cursor, Columns columns) {
+            return cursor.getFloat(columns.indexOf(Columns.LATITUDE));
+        }
+
         @Deprecated
         public static float getVideoLongitude(Cursor cursor) {
             return cursor.getFloat(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.LONGITUDE));
         }
 
+        @Deprecated
+        public static float getVideoLongitude(Cursor cursor, Columns columns) {
+            return cursor.getFloat(columns.indexOf(Columns.LONGITUDE));
+        }
+
         @Deprecated
         public static int getVideoMiniThumbMagic(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.MINI_THUMB_MAGIC));
         }
 
+        @Deprecated
+        public static int getVideoMiniThumbMagic(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.MINI_THUMB_MAGIC));
+        }
+
         public static String getVideoTags(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Video.VideoColumns.TAGS));
         }
 
+        public static String getVideoTags(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.TAGS));
+        }
+
         public static Uri getVideoUri(Cursor cursor) {
             return ContentUris.withAppendedId(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, getId(cursor));
         }
 
+        public static Uri getVideoUri(Cursor cursor, Columns columns) {
+            return ContentUris.withAppendedId(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, getId(cursor, columns));
+        }
+
         @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
         public static int getImageWidth(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.WIDTH));
         }
 
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        public static int getImageWidth(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.WIDTH));
+        }
+
         @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
         public static int getImageHeight(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.HEIGHT));
         }
 
+        @RequiresApi(api = Build.VERSION_CODES.JELLY_BEAN)
+        public static int getImageHeight(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.HEIGHT));
+        }
+
         public static String getImageDescription(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.DESCRIPTION));
         }
 
+        public static String getImageDescription(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.DESCRIPTION));
+        }
+
         public static boolean imageIsPrivate(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.IS_PRIVATE)) != 0;
         }
 
+        public static boolean imageIsPrivate(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.IS_PRIVATE)) != 0;
+        }
+
         @Deprecated
         public static float getImageLatitude(Cursor cursor) {
             return cursor.getFloat(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.LATITUDE));
         }
 
+        @Deprecated
+        public static float getImageLatitude(Cursor cursor, Columns columns) {
+            return cursor.getFloat(columns.indexOf(Columns.LATITUDE));
+        }
+
         @Deprecated
         public static float getImageLongitude(Cursor cursor) {
             return cursor.getFloat(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.LONGITUDE));
         }
 
+        @Deprecated
+        public static float getImageLongitude(Cursor cursor, Columns columns) {
+            return cursor.getFloat(columns.indexOf(Columns.LONGITUDE));
+        }
+
         @Deprecated
         public static int getImageMiniThumbMagic(Cursor cursor) {
             return cursor.getInt(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.MINI_THUMB_MAGIC));
         }
 
+        @Deprecated
+        public static int getImageMiniThumbMagic(Cursor cursor, Columns columns) {
+            return cursor.getInt(columns.indexOf(Columns.MINI_THUMB_MAGIC));
+        }
+
         @Deprecated
         public static String getImagePicasaId(Cursor cursor) {
             return cursor.getString(cursor.getColumnIndexOrThrow(MediaStore.Images.ImageColumns.PICASA_ID));
         }
 
+        @Deprecated
+        public static String getImagePicasaId(Cursor cursor, Columns columns) {
+            return cursor.getString(columns.indexOf(Columns.PICASA_ID));
+        }
+
         public static Uri getImageUri(Cursor cursor) {
             return ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, getId(cursor));
         }
+
+        public static Uri getImageUri(Cursor cursor, Columns columns) {
+            return ContentUris.withAppendedId(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, getId(cursor, columns));
+        }
+    }
+
+    /**
+     * Cursor 的列索引缓存。
+     * <p>
+     * {@link Decoder} 中只接收 Cursor 参数的静态方法每次调用时都需要按列名查找列索引（线性比较所有列名），
+     * 而接收 Columns 参数的静态方法只会在第一次访问某一列时查找一次列索引，之后的每一行都直接使用缓存的
+     * 列索引读取数据。扫描器会为每个 Cursor 创建一个 Columns 对象，并将其传递给
+     * {@link Decoder#decode(Cursor, Columns)} 方法。
+     */
+    public static final class Columns {
+        private static final int DATE_ADDED = 0;
+        private static final int DATE_MODIFIED = 1;
+        private static final int DISPLAY_NAME = 2;
+        private static final int MIME_TYPE = 3;
+        private static final int SIZE = 4;
+        private static final int DURATION = 5;
+        private static final int TITLE = 6;
+        private static final int ID = 7;
+        private static final int ARTIST = 8;
+        private static final int ARTIST_ID = 9;
+        private static final int ALBUM = 10;
+        private static final int ALBUM_ID = 11;
+        private static final int IS_ALARM = 12;
+        private static final int IS_AUDIOBOOK = 13;
+        private static final int IS_MUSIC = 14;
+        private static final int IS_NOTIFICATION = 15;
+        private static final int IS_PENDING = 16;
+        private static final int IS_PODCAST = 17;
+        private static final int IS_RINGTONE = 18;
+        private static final int TRACK = 19;
+        private static final int YEAR = 20;
+        private static final int WIDTH = 21;
+        private static final int HEIGHT = 22;
+        private static final int CATEGORY = 23;
+        private static final int DESCRIPTION = 24;
+        private static final int IS_PRIVATE = 25;
+        private static final int LANGUAGE = 26;
+        private static final int LATITUDE = 27;
+        private static final int LONGITUDE = 28;
+        private static final int MINI_THUMB_MAGIC = 29;
+        private static final int TAGS = 30;
+        private static final int PICASA_ID = 31;
+
+        // 部分列已被废弃，但仍需要为已废弃的 getter 方法提供列索引
+        @SuppressWarnings("deprecation")
+        private static final String[] NAMES = {
+                MediaStore.MediaColumns.DATE_ADDED,
+                MediaStore.MediaColumns.DATE_MODIFIED,
+                MediaStore.MediaColumns.DISPLAY_NAME,
+                MediaStore.MediaColumns.MIME_TYPE,
+                MediaStore.MediaColumns.SIZE,
+                MediaStore.MediaColumns.DURATION,
+                MediaStore.MediaColumns.TITLE,
+                MediaStore.MediaColumns._ID,
+                MediaStore.Audio.Media.ARTIST,
+                MediaStore.Audio.AudioColumns.ARTIST_ID,
+                MediaStore.Audio.AudioColumns.ALBUM,
+                MediaStore.Audio.AudioColumns.ALBUM_ID,
+                MediaStore.Audio.AudioColumns.IS_ALARM,
+                MediaStore.Audio.AudioColumns.IS_AUDIOBOOK,
+                MediaStore.Audio.AudioColumns.IS_MUSIC,
+                MediaStore.Audio.AudioColumns.IS_NOTIFICATION,
+                MediaStore.Audio.AudioColumns.IS_PENDING,
+                MediaStore.Audio.AudioColumns.IS_PODCAST,
+                MediaStore.Audio.AudioColumns.IS_RINGTONE,
+                MediaStore.Audio.AudioColumns.TRACK,
+                MediaStore.Audio.AudioColumns.YEAR,
+                MediaStore.Video.VideoColumns.WIDTH,
+                MediaStore.Video.VideoColumns.HEIGHT,
+                MediaStore.Video.VideoColumns.CATEGORY,
+                MediaStore.Video.VideoColumns.DESCRIPTION,
+                MediaStore.Video.VideoColumns.IS_PRIVATE,
+                MediaStore.Video.VideoColumns.LANGUAGE,
+                MediaStore.Video.VideoColumns.LATITUDE,
+                MediaStore.Video.VideoColumns.LONGITUDE,
+                MediaStore.Video.VideoColumns.MINI_THUMB_MAGIC,
+                MediaStore.Video.VideoColumns.TAGS,
+                MediaStore.Images.ImageColumns.PICASA_ID
+        };
+
+        private static final int UNRESOLVED = -2;
+
+        private final Cursor mCursor;
+        private final int[] mIndexes;
+        private Map<String, Integer> mCustomIndexes;
+        private final StringPool mStringPool;
+
+        /**
+         * 创建一个 Columns 对象。该 Columns 对象会使用一个独立的字符串池。
+         *
+         * @param cursor Cursor 对象，不能为 null
+         */
+        public Columns(@NonNull Cursor cursor) {
+            this(cursor, new StringPool());
+        }
+
+        /**
+         * 创建一个 Columns 对象。
+         *
+         * @param cursor     Cursor 对象，不能为 null
+         * @param stringPool 字符串池。扫描器会让同一次扫描中的所有 Columns 对象共享同一个字符串池。
+         */
+        Columns(@NonNull Cursor cursor, @NonNull StringPool stringPool) {
+            ObjectUtil.requireNonNull(cursor);
+
+            mCursor = cursor;
+            mIndexes = new int[NAMES.length];
+            Arrays.fill(mIndexes, UNRESOLVED);
+            mStringPool = stringPool;
+        }
+
+        /**
+         * 返回字符串池中与 value 相等的字符串实例。
+         * <p>
+         * 如果字符串池中不存在与 value 相等的字符串，则将 value 加入字符串池并返回 value。字符串池由扫描器
+         * 创建，并在本次扫描的所有 Cursor 之间共享（增量扫描器则在所有扫描之间共享），对于歌手名、专辑名、MIME 类型这类大量重复的列，可以让所有重复的值共享同一个 String 实例，
+         * 从而降低扫描结果的内存占用。该方法是线程安全的。
+         *
+         * @param value 要去重的字符串，可以为 null
+         * @return 字符串池中与 value 相等的字符串实例，value 为 null 时返回 null
+         */
+        public String intern(String value) {
+            return mStringPool.intern(value);
+        }
+
+        /**
+         * 获取指定列的列索引。列索引只会在第一次获取时查找一次，之后会直接返回缓存的值。
+         *
+         * @param columnName 列名
+         * @return 列索引
+         * @throws IllegalArgumentException 如果 Cursor 中不存在该列
+         */
+        public int indexOf(String columnName) throws IllegalArgumentException {
+            if (mCustomIndexes == null) {
+                mCustomIndexes = new HashMap<>();
+            }
+
+            Integer index = mCustomIndexes.get(columnName);
+            if (index == null) {
+                index = mCursor.getColumnIndexOrThrow(columnName);
+                mCustomIndexes.put(columnName, index);
+            }
+
+            return index;
+        }
+
+        private int indexOf(int column) {
+            int index = mIndexes[column];
+            if (index == UNRESOLVED) {
+                index = mCursor.getColumnIndexOrThrow(NAMES[column]);
+                mIndexes[column] = index;
+            }
+            return index;
+        }
     }
 
     /**
      * 扫描器基类，该类实现了扫描器的基本功能。
+     * <p>
+     * 扫描器可以被重复使用：上一次扫描结束（或被取消）后，可以修改扫描器的配置（例如 selectionArgs），然后再次调用
+     * {@link #scan(OnScanCallback)} 方法开始新的扫描。每一次扫描在开始时都会保存一份扫描器配置的副本，因此扫描
+     * 过程中修改配置不会影响正在进行的扫描。
+     * <p>
+     * 如果多个扫描器同时执行相同的扫描（Uri、projection、selection、selectionArgs、sortOrder 均相同，并且
+     * Decoder 的 equals 方法返回 true），那么后开始的扫描器不会再执行查询，而是共享正在进行的扫描的 Cursor
+     * 遍历结果。分页扫描与流式扫描不会被共享。
      *
      * @param <T> 媒体文件对应的实体类型。
      */
     public static abstract class BaseScanner<T> implements Scanner<T> {
+        // 扫描的状态：IDLE -> RUNNING -> FINISHED/CANCELLED，IDLE 状态的扫描也可以直接被取消
+        private static final int STATE_IDLE = 0;
+        private static final int STATE_RUNNING = 1;
+        private static final int STATE_FINISHED = 2;
+        private static final int STATE_CANCELLED = 3;
+
         private String[] mProjection;
         private String mSelection;
         private String[] mSelectionArgs;
@@ -387,15 +1435,25 @@ public final class MediaStoreHelper {
         private ContentResolver mResolver;
         private Decoder<T> mDecoder;
 
-        private OnScanCallback<T> mCallback;
         private Handler mMainHandler;
         private int mThreshold;
+        private int mPageSize;
+        private int mBatchSize;
+        private int mMaxBatchLatency;
+        private Executor mScanExecutor;
+        private int mDecodeParallelism;
+        private OnScanMetricsListener mMetricsListener;
+        private StringPool mStringPool;
 
-        private boolean mRunning;
-        private boolean mCancelled;
-        private boolean mFinished;
+        // 当前（或最近一次）扫描，为 null 时表示扫描器还没有开始过扫描
+        private volatile ScanTask mTask;
+
+        // 正在进行的扫描。相同的扫描（Uri、projection、selection、selectionArgs、sortOrder 与 Decoder 均相同）
+        // 会共享同一次 Cursor 遍历。
+        private static final Map<QueryKey, BaseScanner<?>.ScanTask> sInFlightScans = new HashMap<>();
 
-        private long mLastUpdateTime;
+        // 用于区分不同扫描的异步 trace 区段
+        private static final AtomicInteger sTraceCookie = new AtomicInteger();
 
         public BaseScanner(Uri uri, ContentResolver resolver, Decoder<T> decoder) {
             mUri = uri;
@@ -403,6 +1461,9 @@ public final class MediaStoreHelper {
             mDecoder = decoder;
 
             mThreshold = MIN_UPDATE_THRESHOLD;
+            mBatchSize = DEFAULT_BATCH_SIZE;
+            mMaxBatchLatency = DEFAULT_MAX_BATCH_LATENCY;
+            mDecodeParallelism = 1;
             mMainHandler = new Handler(Looper.getMainLooper());
         }
 
@@ -441,122 +1502,3190 @@ public final class MediaStoreHelper {
             return this;
         }
 
-        protected synchronized final boolean isRunning() {
-            return mRunning;
+        @Override
+        public Scanner<T> pageSize(int pageSize) {
+            mPageSize = pageSize;
+            return this;
         }
 
-        protected synchronized final void setRunning(boolean running) {
-            mRunning = running;
-        }
+        @Override
+        public Scanner<T> batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be greater than 0.");
+            }
 
-        protected synchronized final boolean isFinished() {
-            return mFinished;
+            mBatchSize = batchSize;
+            return this;
         }
 
-        protected synchronized final void setFinished(boolean finished) {
-            mFinished = finished;
-        }
+        @Override
+        public Scanner<T> maxBatchLatency(int latency) {
+            if (latency < 0) {
+                throw new IllegalArgumentException("latency must not be negative.");
+            }
 
-        protected synchronized final boolean isCancelled() {
-            return mCancelled;
+            mMaxBatchLatency = latency;
+            return this;
         }
 
         @Override
-        public synchronized final void cancel() {
-            mCancelled = true;
-            setRunning(false);
-            setFinished(true);
+        public Scanner<T> executor(@Nullable Executor executor) {
+            mScanExecutor = executor;
+            return this;
         }
 
         @Override
-        public void scan(@NonNull final OnScanCallback<T> callback) throws IllegalStateException {
-            ObjectUtil.requireNonNull(callback);
-
-            if (isRunning()) {
-                throw new IllegalStateException("scanner is running.");
+        public Scanner<T> decodeParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be greater than 0.");
             }
 
-            mCallback = callback;
+            mDecodeParallelism = parallelism;
+            return this;
+        }
 
-            mExecutor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    if (isCancelled() || isFinished()) {
-                        return;
-                    }
+        @Override
+        public Scanner<T> metricsListener(@Nullable OnScanMetricsListener listener) {
+            mMetricsListener = listener;
+            return this;
+        }
 
-                    setRunning(true);
-                    setFinished(false);
+        /**
+         * 使用扫描器当前的配置在当前线程中执行查询，分页相关的配置会被忽略。
+         *
+         * @see ScanPublisher
+         */
+        final Cursor query(@Nullable CancellationSignal signal) {
+            String[] projection = mProjection != null ? mProjection : mDecoder.requiredColumns();
+            return ContentResolverCompat.query(mResolver, mUri, projection, mSelection, mSelectionArgs, mSortOrder,
+                    signal);
+        }
 
-                    notifyStartScan();
+        final Decoder<T> getDecoder() {
+            return mDecoder;
+        }
 
-                    Cursor cursor = mResolver.query(mUri, mProjection, mSelection, mSelectionArgs, mSortOrder);
-                    if (cursor != null && cursor.moveToFirst()) {
-                        forEachCursor(cursor);
-                        cursor.close();
-                        return;
-                    }
+        @WorkerThread
+        @NonNull
+        @Override
+        public List<T> scanBlocking() {
+            Cursor cursor = query(null);
+            if (cursor == null) {
+                return new ArrayList<>();
+            }
 
-                    notifyFinished(new ArrayList<T>());
+            try {
+                List<T> items = new ArrayList<>(cursor.getCount());
+                if (cursor.moveToFirst()) {
+                    Columns columns = new Columns(cursor, obtainStringPool());
+                    do {
+                        items.add(mDecoder.decode(cursor, columns));
+                    } while (cursor.moveToNext());
                 }
-            });
+                return items;
+            } finally {
+                cursor.close();
+            }
         }
 
-        private void forEachCursor(Cursor cursor) {
-            int progress = 0;
-            int max = cursor.getCount();
-            List<T> items = new ArrayList<>(max);
+        @WorkerThread
+        @NonNull
+        @Override
+        public ScanIterator<T> iterate() {
+            return new CursorScanIterator<>(query(null), mDecoder, obtainStringPool());
+        }
 
-            do {
-                progress++;
-                items.add(decode(cursor, progress, max));
-            } while (cursor.moveToNext() && !isCancelled());
+        /**
+         * 让该扫描器的所有扫描都使用 stringPool 对字符串去重，这样多个扫描器（例如多存储卷扫描时每个存储卷的
+         * 扫描器）的扫描结果可以共享相同的字符串实例。
+         *
+         * @param stringPool 字符串池，为 null 时每次扫描都会使用一个新的字符串池（默认）
+         */
+        final BaseScanner<T> stringPool(@Nullable StringPool stringPool) {
+            mStringPool = stringPool;
+            return this;
+        }
 
-            notifyFinished(items);
+        private StringPool obtainStringPool() {
+            return mStringPool == null ? new StringPool() : mStringPool;
         }
 
-        private T decode(Cursor cursor, final int progress, final int max) {
-            T item = mDecoder.decode(cursor);
-            notifyProgressUpdate(progress, max, item);
-            return item;
+        final Executor getScanExecutor() {
+            return getExecutor(mScanExecutor);
         }
 
-        private void notifyStartScan() {
-            mMainHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    mCallback.onStartScan();
-                }
-            });
+        /**
+         * 扫描器当前是否正在扫描（包括已提交但还未开始执行的扫描，以及扫描结果还未传递给回调接口的扫描）。
+         */
+        protected final boolean isRunning() {
+            ScanTask task = mTask;
+            return task != null && task.isActive();
         }
 
-        private void notifyProgressUpdate(final int progress, final int max, final T item) {
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - mLastUpdateTime < mThreshold) {
-                return;
-            }
+        /**
+         * 最近一次扫描是否已结束（包括被取消）。
+         */
+        protected final boolean isFinished() {
+            ScanTask task = mTask;
+            return task != null && !task.isActive();
+        }
 
-            if (isCancelled() || isFinished()) {
-                return;
+        /**
+         * 最近一次扫描是否已被取消。
+         */
+        protected final boolean isCancelled() {
+            ScanTask task = mTask;
+            return task != null && task.isCancelled();
+        }
+
+        /**
+         * 取消当前正在进行的扫描。扫描被取消后，可以再次调用 {@link #scan(OnScanCallback)} 方法开始新的扫描。
+         */
+        @Override
+        public final void cancel() {
+            ScanTask task = mTask;
+            if (task != null) {
+                task.cancel();
             }
+        }
 
-            mLastUpdateTime = currentTime;
-            mMainHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    mCallback.onUpdateProgress(progress, max, item);
+        /**
+         * 开始扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
+         */
+        @Override
+        public void scan(@NonNull final OnScanCallback<T> callback) throws IllegalStateException {
+            ObjectUtil.requireNonNull(callback);
+
+            ScanTask task;
+            synchronized (this) {
+                if (isRunning()) {
+                    throw new IllegalStateException("scanner is running.");
                 }
-            });
+
+                task = new ScanTask(callback);
+                mTask = task;
+            }
+
+            task.start();
         }
 
-        private void notifyFinished(final List<T> items) {
-            setFinished(true);
-            mMainHandler.post(new Runnable() {
-                @Override
-                public void run() {
-                    mCallback.onFinished(items);
-                }
-            });
+        /**
+         * 一次扫描。
+         * <p>
+         * 每次调用 {@link #scan(OnScanCallback)} 方法都会创建一个新的 ScanTask 对象，扫描的状态与扫描器配置的副本
+         * 都保存在该对象中，因此上一次被取消的扫描即使还未完全停止，也不会影响新的扫描。
+         * <p>
+         * 共享 Cursor 遍历时，只有第一个开始的扫描（leader）会执行查询，其他扫描只会加入 leader 的订阅者列表。
+         */
+        private class ScanTask implements Runnable {
+            private final OnScanCallback<T> mCallback;
+
+            private final String[] mProjection;
+            private final String mSelection;
+            private final String[] mSelectionArgs;
+            private final String mSortOrder;
+            private final int mThreshold;
+            private final int mPageSize;
+            private final int mBatchSize;
+            private final int mMaxBatchLatency;
+            private final Executor mScanExecutor;
+            private final int mDecodeParallelism;
+            private final OnScanMetricsListener mMetricsListener;
+            // 未设置性能指标监听器时为 null
+            private final ScanMetrics.Recorder mMetrics;
+            // 扫描器的共享字符串池，为 null 时本次扫描使用一个新的字符串池
+            private final StringPool mSharedStringPool;
+
+            // 扫描的状态只通过 CAS 修改，读取状态（例如每一行的取消检查）只是一次 volatile 读
+            private final AtomicInteger mState = new AtomicInteger(STATE_IDLE);
+
+            // 共享当前 Cursor 遍历的所有扫描（包括当前扫描自身），只有 leader 会使用该列表
+            private final List<ScanTask> mSubscribers = new CopyOnWriteArrayList<>();
+            private QueryKey mInFlightKey;
+            // 当前扫描加入的扫描（leader），为 null 时表示当前扫描自己执行 Cursor 遍历
+            private volatile ScanTask mLeader;
+
+            // 用于中止 ContentProvider 端的查询，只在扫描期间存在
+            private volatile CancellationSignal mCancellationSignal;
+
+            // 扫描结果需要写入的缓存，不需要写入缓存时为 null
+            private ScanResultCache mResultCache;
+            private QueryKey mResultCacheKey;
+            private long mResultCacheVersion;
+
+            // 本次扫描的字符串池，由本次扫描中的所有 Columns 对象共享
+            private StringPool mStringPool;
+
+            private List<T> mBatch;
+            private int mBatchOffset;
+            private long mBatchStartTime;
+
+            private long mLastUpdateTime;
+            private int mRowsSinceProgressCheck;
+            private final ProgressNotifier mProgressNotifier = new ProgressNotifier();
+
+            // 以下两个字段只会在扫描线程中访问
+            private int mTraceCookie;
+            private boolean mTracingScan;
+
+            ScanTask(OnScanCallback<T> callback) {
+                mCallback = callback;
+
+                BaseScanner<T> scanner = BaseScanner.this;
+                mProjection = scanner.mProjection;
+                mSelection = scanner.mSelection;
+                mSelectionArgs = scanner.mSelectionArgs;
+                mSortOrder = scanner.mSortOrder;
+                mThreshold = scanner.mThreshold;
+                mPageSize = scanner.mPageSize;
+                mBatchSize = scanner.mBatchSize;
+                mMaxBatchLatency = scanner.mMaxBatchLatency;
+                mScanExecutor = scanner.mScanExecutor;
+                mDecodeParallelism = scanner.mDecodeParallelism;
+                mSharedStringPool = scanner.mStringPool;
+                mMetricsListener = scanner.mMetricsListener;
+                mMetrics = mMetricsListener == null ? null : new ScanMetrics.Recorder();
+
+                mSubscribers.add(this);
+            }
+
+            boolean isActive() {
+                int state = mState.get();
+                return state == STATE_IDLE || state == STATE_RUNNING;
+            }
+
+            boolean isCancelled() {
+                return mState.get() == STATE_CANCELLED;
+            }
+
+            // IDLE -> RUNNING，扫描在开始执行之前已被取消时返回 false
+            private boolean moveToRunning() {
+                return mState.compareAndSet(STATE_IDLE, STATE_RUNNING);
+            }
+
+            // IDLE/RUNNING -> FINISHED，扫描已被取消时返回 false
+            private boolean moveToFinished() {
+                return moveToTerminal(STATE_FINISHED);
+            }
+
+            // IDLE/RUNNING -> CANCELLED
+            private boolean moveToCancelled() {
+                return moveToTerminal(STATE_CANCELLED);
+            }
+
+            private boolean moveToTerminal(int terminal) {
+                while (true) {
+                    int state = mState.get();
+                    if (state != STATE_IDLE && state != STATE_RUNNING) {
+                        return false;
+                    }
+
+                    if (mState.compareAndSet(state, terminal)) {
+                        return true;
+                    }
+                }
+            }
+
+            void cancel() {
+                if (!moveToCancelled()) {
+                    return;
+                }
+
+                ScanTask leader = mLeader;
+                (leader == null ? this : leader).cancelQueryIfAbandoned();
+            }
+
+            /**
+             * 如果共享当前 Cursor 遍历的所有扫描都已被取消，则中止 ContentProvider 端正在执行的查询。
+             */
+            private void cancelQueryIfAbandoned() {
+                CancellationSignal signal = mCancellationSignal;
+                if (signal != null && isAbandoned()) {
+                    signal.cancel();
+                }
+            }
+
+            void start() {
+                if (deliverCachedResult() || joinInFlightScan()) {
+                    return;
+                }
+
+                try {
+                    getExecutor(mScanExecutor).execute(this);
+                } catch (RejectedExecutionException e) {
+                    // 当前扫描还未被登记为正在进行的扫描，因此不会有其他扫描加入
+                    moveToCancelled();
+                    notifyFinished(new ArrayList<T>());
+                    throw e;
+                }
+
+                registerInFlightScan();
+            }
+
+            @Override
+            public void run() {
+                // 即使当前扫描在开始执行前已被取消，也要继续为已加入的扫描执行 Cursor 遍历
+                moveToRunning();
+                if (isAbandoned()) {
+                    leaveInFlightScans();
+                    return;
+                }
+
+                if (mMetrics != null) {
+                    mMetrics.start();
+                }
+
+                mTraceCookie = sTraceCookie.incrementAndGet();
+                mTracingScan = ScanTrace.beginAsync(ScanTrace.SCAN, mTraceCookie);
+
+                mStringPool = mSharedStringPool == null ? new StringPool() : mSharedStringPool;
+                mCancellationSignal = new CancellationSignal();
+
+                notifyStartScan();
+
+                try {
+                    if (mPageSize > 0) {
+                        scanPaged();
+                    } else {
+                        scanAll();
+                    }
+                } catch (OperationCanceledException e) {
+                    // 所有扫描都已被取消，ContentProvider 端的查询已被中止。此时不会调用任何回调接口的 onFinished
+                    // 方法，只需离开 sInFlightScans 并报告性能指标
+                    notifyFinished(new ArrayList<T>());
+                } catch (RuntimeException e) {
+                    // 查询或解码失败（例如 Decoder 抛出了异常，或者没有读取媒体文件的权限）
+                    abort();
+                    throw e;
+                } finally {
+                    mCancellationSignal = null;
+                    ScanTrace.endAsync(mTracingScan, ScanTrace.SCAN, mTraceCookie);
+                }
+            }
+
+            /**
+             * 扫描失败时结束共享当前 Cursor 遍历的所有扫描：离开 sInFlightScans，之后相同的扫描不会再加入这个已经
+             * 失败的扫描；并将所有扫描置为已取消，这样扫描器可以重新开始扫描。失败的扫描不会调用回调接口的
+             * onFinished 方法。
+             */
+            private void abort() {
+                mStringPool = null;
+                mBatch = null;
+
+                // 离开 sInFlightScans 后不会再有新的扫描加入，此时 mSubscribers 不会再发生变化
+                leaveInFlightScans();
+
+                for (ScanTask task : mSubscribers) {
+                    task.moveToCancelled();
+                }
+            }
+
+            private void scanAll() {
+                long queryStart = startTiming();
+                boolean traced = ScanTrace.begin(ScanTrace.QUERY);
+                Cursor cursor;
+                try {
+                    cursor = ContentResolverCompat.query(mResolver, mUri, getProjection(), mSelection,
+                            mSelectionArgs, mSortOrder, mCancellationSignal);
+                } finally {
+                    ScanTrace.end(traced);
+                }
+                recordQuery(queryStart);
+
+                if (cursor == null) {
+                    notifyFinished(new ArrayList<T>());
+                    return;
+                }
+
+                try {
+                    if (cursor.moveToFirst()) {
+                        forEachCursor(cursor);
+                        return;
+                    }
+
+                    List<T> items = new ArrayList<>();
+                    putResultCache(items);
+                    notifyFinished(items);
+                } finally {
+                    cursor.close();
+                }
+            }
+
+            private void forEachCursor(Cursor cursor) {
+                int max = cursor.getCount();
+                List<T> items = isStreaming() ? Collections.<T>emptyList() : new ArrayList<T>(max);
+
+                readCursor(cursor, 0, max, max, items);
+                flushBatch();
+
+                // 被中途取消的扫描结果是不完整的，不能写入缓存
+                if (!isAbandoned()) {
+                    putResultCache(items);
+                }
+
+                notifyFinished(items);
+            }
+
+            private void scanPaged() {
+                List<T> items = isStreaming() ? Collections.<T>emptyList() : new ArrayList<T>();
+
+                int offset = 0;
+                while (!isAbandoned()) {
+                    long queryStart = startTiming();
+                    boolean traced = ScanTrace.begin(ScanTrace.QUERY);
+                    Cursor cursor;
+                    try {
+                        cursor = queryPage(offset, mPageSize);
+                    } finally {
+                        ScanTrace.end(traced);
+                    }
+                    recordQuery(queryStart);
+
+                    if (cursor == null) {
+                        break;
+                    }
+
+                    int count = 0;
+                    try {
+                        if (cursor.moveToFirst()) {
+                            // 分页扫描时无法预先得知结果的总数，因此 max 为 -1
+                            count = readCursor(cursor, offset, mPageSize, -1, items);
+                        }
+                    } finally {
+                        cursor.close();
+                    }
+
+                    flushBatch();
+
+                    offset += count;
+                    if (count < mPageSize) {
+                        break;
+                    }
+                }
+
+                notifyFinished(items);
+            }
+
+            /**
+             * 从 Cursor 的当前位置开始读取最多 limit 行数据。流式扫描时，解码后的实体对象会被分批传递给回调接口，
+             * 否则会被添加到 items 中。
+             *
+             * @return 实际读取的行数
+             */
+            private int readCursor(Cursor cursor, int offset, int limit, int max, List<T> items) {
+                if (mMetrics != null) {
+                    mMetrics.recordFirstRow();
+                }
+
+                boolean traced = ScanTrace.begin(ScanTrace.ITERATE);
+                try {
+                    return readRows(cursor, offset, limit, max, items);
+                } finally {
+                    ScanTrace.end(traced);
+                }
+            }
+
+            private int readRows(Cursor cursor, int offset, int limit, int max, List<T> items) {
+                if (mDecodeParallelism > 1) {
+                    return readCursorParallel(cursor, offset, limit, max, items);
+                }
+
+                Columns columns = new Columns(cursor, mStringPool);
+                int count = 0;
+
+                do {
+                    count++;
+                    collect(decode(cursor, columns), offset + count, max, items);
+                } while (count < limit && cursor.moveToNext() && !isAbandoned());
+
+                return count;
+            }
+
+            private T decode(Cursor cursor, Columns columns) {
+                if (mMetrics == null) {
+                    return mDecoder.decode(cursor, columns);
+                }
+
+                mMetrics.recordRow(cursor);
+
+                long start = System.nanoTime();
+                T item = mDecoder.decode(cursor, columns);
+                mMetrics.recordDecode(System.nanoTime() - start);
+                return item;
+            }
+
+            /**
+             * 流水线式地读取 Cursor：扫描线程只负责将行数据复制到 {@link RowSnapshotCursor} 中，解码工作由解码
+             * 线程池并行完成。扫描线程会按提交的顺序取回解码结果，因此扫描结果的顺序保持不变。
+             */
+            private int readCursorParallel(Cursor cursor, int offset, int limit, int max, List<T> items) {
+                String[] columnNames = cursor.getColumnNames();
+                int maxInFlight = mDecodeParallelism * 2;
+                Deque<Future<List<T>>> pending = new ArrayDeque<>(maxInFlight);
+
+                int count = 0;
+                int collected = 0;
+                boolean hasRow = true;
+
+                while (hasRow && !isAbandoned()) {
+                    RowSnapshotCursor chunk = new RowSnapshotCursor(columnNames,
+                            Math.min(DECODE_CHUNK_SIZE, limit - count));
+
+                    while (hasRow && !chunk.isFull()) {
+                        if (mMetrics != null) {
+                            mMetrics.recordRow(cursor);
+                        }
+                        chunk.copyRow(cursor);
+                        count++;
+                        hasRow = count < limit && cursor.moveToNext();
+                    }
+
+                    pending.add(getDecodeExecutor().submit(new DecodeTask<>(mDecoder, chunk, mStringPool, mMetrics)));
+
+                    if (pending.size() >= maxInFlight) {
+                        collected += collectChunk(pending.poll(), offset + collected, max, items);
+                    }
+                }
+
+                while (!pending.isEmpty()) {
+                    collected += collectChunk(pending.poll(), offset + collected, max, items);
+                }
+
+                return count;
+            }
+
+            // 返回本次收集的实体对象的数量
+            private int collectChunk(Future<List<T>> future, int offset, int max, List<T> items) {
+                List<T> chunk = getUninterruptibly(future);
+
+                int progress = offset;
+                for (T item : chunk) {
+                    progress++;
+                    collect(item, progress, max, items);
+                }
+
+                return chunk.size();
+            }
+
+            private void collect(T item, int progress, int max, List<T> items) {
+                notifyProgressUpdate(progress, max, item);
+
+                if (isStreaming()) {
+                    appendBatch(item, progress - 1);
+                } else {
+                    items.add(item);
+                }
+            }
+
+            private void appendBatch(T item, int position) {
+                if (mBatch == null) {
+                    mBatch = new ArrayList<>(mBatchSize);
+                    mBatchOffset = position;
+                    mBatchStartTime = SystemClock.uptimeMillis();
+                }
+
+                mBatch.add(item);
+
+                if (mBatch.size() >= mBatchSize || isBatchExpired()) {
+                    flushBatch();
+                }
+            }
+
+            private boolean isBatchExpired() {
+                if (mMaxBatchLatency == 0) {
+                    return true;
+                }
+
+                // 与 notifyProgressUpdate 一样，每 PROGRESS_CHECK_INTERVAL 行才读取一次时钟
+                return mBatch.size() % PROGRESS_CHECK_INTERVAL == 0
+                        && SystemClock.uptimeMillis() - mBatchStartTime >= mMaxBatchLatency;
+            }
+
+            private void flushBatch() {
+                if (mBatch == null) {
+                    return;
+                }
+
+                notifyItems(mBatch, mBatchOffset);
+                mBatch = null;
+            }
+
+            private Cursor queryPage(int offset, int limit) {
+                String sortOrder = mSortOrder == null ? MediaStore.MediaColumns._ID + " ASC" : mSortOrder;
+
+                // MediaProvider 从 Android 11 开始才支持 QUERY_ARG_LIMIT/QUERY_ARG_OFFSET 参数，
+                // 同时不再允许在 sortOrder 中使用 LIMIT 子句。
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+                    Bundle queryArgs = new Bundle();
+                    queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, mSelection);
+                    queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, mSelectionArgs);
+                    queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, sortOrder);
+                    queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+                    queryArgs.putInt(ContentResolver.QUERY_ARG_OFFSET, offset);
+                    try {
+                        return mResolver.query(mUri, getProjection(), queryArgs,
+                                (android.os.CancellationSignal) mCancellationSignal.getCancellationSignalObject());
+                    } catch (android.os.OperationCanceledException e) {
+                        // 与 ContentResolverCompat 一致，统一抛出 androidx 的 OperationCanceledException
+                        throw new OperationCanceledException();
+                    }
+                }
+
+                return ContentResolverCompat.query(mResolver, mUri, getProjection(), mSelection, mSelectionArgs,
+                        sortOrder + " LIMIT " + limit + " OFFSET " + offset, mCancellationSignal);
+            }
+
+            private String[] getProjection() {
+                if (mProjection != null) {
+                    return mProjection;
+                }
+
+                return mDecoder.requiredColumns();
+            }
+
+            private boolean isStreaming() {
+                return mCallback instanceof OnStreamScanCallback;
+            }
+
+            private long startTiming() {
+                return mMetrics == null ? 0 : System.nanoTime();
+            }
+
+            private void recordQuery(long startTime) {
+                if (mMetrics != null) {
+                    mMetrics.recordQuery(startTime);
+                }
+            }
+
+            private void post(Runnable r) {
+                long start = startTiming();
+                mMainHandler.post(r);
+
+                if (mMetrics != null) {
+                    mMetrics.recordPost(start);
+                }
+            }
+
+            private void notifyStartScan() {
+                for (final ScanTask task : mSubscribers) {
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            task.mCallback.onStartScan();
+                        }
+                    });
+                }
+            }
+
+            private void notifyProgressUpdate(int progress, int max, T item) {
+                // 每 PROGRESS_CHECK_INTERVAL 行才读取一次时钟
+                if (mRowsSinceProgressCheck++ % PROGRESS_CHECK_INTERVAL != 0) {
+                    return;
+                }
+
+                long currentTime = SystemClock.uptimeMillis();
+                if (currentTime - mLastUpdateTime < mThreshold) {
+                    return;
+                }
+
+                if (isAbandoned()) {
+                    return;
+                }
+
+                mLastUpdateTime = currentTime;
+                mProgressNotifier.update(progress, max, item);
+            }
+
+            private void notifyItems(final List<T> items, final int offset) {
+                if (isCancelled()) {
+                    return;
+                }
+
+                final OnStreamScanCallback<T> callback = (OnStreamScanCallback<T>) mCallback;
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        boolean traced = ScanTrace.begin(ScanTrace.DELIVER);
+                        try {
+                            callback.onItems(items, offset);
+                        } finally {
+                            ScanTrace.end(traced);
+                        }
+                    }
+                });
+            }
+
+            private void notifyFinished(final List<T> items) {
+                mStringPool = null;
+
+                // 离开 sInFlightScans 后不会再有新的扫描加入，此时 mSubscribers 不会再发生变化
+                leaveInFlightScans();
+
+                for (final ScanTask task : mSubscribers) {
+                    // 被取消的扫描不会调用回调接口的 onFinished 方法
+                    if (task.isCancelled()) {
+                        continue;
+                    }
+
+                    // 每个扫描都持有一份独立的扫描结果，避免回调接口之间相互影响
+                    final List<T> result = task == this ? items : new ArrayList<>(items);
+                    post(new Runnable() {
+                        @Override
+                        public void run() {
+                            // 在主线程中结束扫描，这样即使在扫描结果被传递之前调用 cancel() 方法，也不会传递过期的结果
+                            if (!task.moveToFinished()) {
+                                return;
+                            }
+
+                            boolean traced = ScanTrace.begin(ScanTrace.DELIVER);
+                            try {
+                                task.mCallback.onFinished(result);
+                            } finally {
+                                ScanTrace.end(traced);
+                            }
+                        }
+                    });
+                }
+
+                notifyMetrics();
+            }
+
+            private void notifyMetrics() {
+                if (mMetrics == null) {
+                    return;
+                }
+
+                final ScanMetrics metrics = mMetrics.build();
+                final OnScanMetricsListener listener = mMetricsListener;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onScanMetrics(metrics);
+                    }
+                });
+            }
+
+            // 分页与流式扫描已传递的结果无法重放，记录性能指标的扫描需要真正执行查询
+            private boolean isShareable() {
+                return mPageSize <= 0 && !isStreaming() && mMetrics == null;
+            }
+
+            private QueryKey getQueryKey() {
+                return new QueryKey(mUri, getProjection(), mSelection, mSelectionArgs, mSortOrder, mDecoder);
+            }
+
+            /**
+             * 如果开启了扫描结果缓存，并且缓存中存在相同扫描的结果，则直接将缓存的结果传递给回调接口。
+             * <p>
+             * 缓存中不存在扫描结果时，会在查询之前读取 Uri 的版本号，以便扫描完成后将扫描结果写入缓存。
+             *
+             * @return 如果已传递缓存的扫描结果，则返回 true
+             */
+            private boolean deliverCachedResult() {
+                ScanResultCache cache = MediaStoreHelper.mResultCache;
+                if (cache == null || !isShareable()) {
+                    return false;
+                }
+
+                QueryKey key = getQueryKey();
+                List<?> cached = cache.get(key);
+                if (cached == null) {
+                    mResultCache = cache;
+                    mResultCacheKey = key;
+                    mResultCacheVersion = cache.getVersion(mUri);
+                    return false;
+                }
+
+                moveToRunning();
+
+                // 缓存中的列表不可修改，因此需要复制一份交给回调接口
+                @SuppressWarnings("unchecked")
+                final List<T> result = new ArrayList<>((List<T>) cached);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onStartScan();
+                    }
+                });
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!moveToFinished()) {
+                            return;
+                        }
+
+                        boolean traced = ScanTrace.begin(ScanTrace.DELIVER);
+                        try {
+                            mCallback.onFinished(result);
+                        } finally {
+                            ScanTrace.end(traced);
+                        }
+                    }
+                });
+                return true;
+            }
+
+            private void putResultCache(List<T> items) {
+                if (mResultCache == null) {
+                    return;
+                }
+
+                long size = 0;
+                for (T item : items) {
+                    size += mDecoder.estimateSize(item);
+                }
+
+                mResultCache.put(mResultCacheKey, mResultCacheVersion, items, size);
+            }
+
+            /**
+             * 如果存在一个正在进行的相同扫描，则加入该扫描，共享它的 Cursor 遍历结果。
+             * <p>
+             * 只有非分页、非流式的扫描才能共享，因为分页与流式扫描已传递的结果无法重放给后加入的扫描。记录性能指标的
+             * 扫描也不会加入其他扫描。
+             *
+             * @return 如果成功加入了正在进行的扫描，则返回 true；否则返回 false，此时需要在扫描任务被 Executor 接受
+             * 之后调用 {@link #registerInFlightScan()} 方法
+             */
+            private boolean joinInFlightScan() {
+                if (!isShareable()) {
+                    return false;
+                }
+
+                QueryKey key = mResultCacheKey == null ? getQueryKey() : mResultCacheKey;
+                synchronized (sInFlightScans) {
+                    @SuppressWarnings("unchecked")
+                    ScanTask leader = (ScanTask) sInFlightScans.get(key);
+                    if (leader == null || leader.isAbandoned()) {
+                        mInFlightKey = key;
+                        return false;
+                    }
+
+                    moveToRunning();
+                    mLeader = leader;
+                    leader.mSubscribers.add(this);
+                }
+
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mCallback.onStartScan();
+                    }
+                });
+                return true;
+            }
+
+            /**
+             * 将当前扫描登记为正在进行的扫描，之后开始的相同扫描可以加入当前扫描。
+             * <p>
+             * 只有在扫描任务被 Executor 接受之后才会登记，因此被拒绝的扫描任务不会有其他扫描加入，也就不需要
+             * 向已加入的扫描传递一个虚假的扫描结果。如果扫描在登记之前就已经结束，则不会登记。
+             */
+            private void registerInFlightScan() {
+                synchronized (sInFlightScans) {
+                    if (mInFlightKey == null) {
+                        return;
+                    }
+
+                    @SuppressWarnings("unchecked")
+                    ScanTask leader = (ScanTask) sInFlightScans.get(mInFlightKey);
+                    if (leader == null || leader.isAbandoned()) {
+                        sInFlightScans.put(mInFlightKey, this);
+                    }
+                }
+            }
+
+            private void leaveInFlightScans() {
+                synchronized (sInFlightScans) {
+                    if (mInFlightKey == null) {
+                        return;
+                    }
+
+                    if (sInFlightScans.get(mInFlightKey) == this) {
+                        sInFlightScans.remove(mInFlightKey);
+                    }
+                    mInFlightKey = null;
+                }
+            }
+
+            /**
+             * 共享当前 Cursor 遍历的所有扫描是否都已被取消。
+             */
+            private boolean isAbandoned() {
+                // 快速路径：扫描线程每读取一行都会调用该方法，当前扫描未被取消时只需一次 volatile 读
+                if (!isCancelled()) {
+                    return false;
+                }
+
+                for (ScanTask task : mSubscribers) {
+                    if (!task.isCancelled()) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            /**
+             * 可重复使用的进度通知消息。
+             * <p>
+             * 扫描线程只会更新最新的进度值，如果上一个消息还未被主线程处理，则不会再发送新的消息，主线程处理消息时
+             * 总是读取最新的进度值（latest-value-wins）。因此整个扫描过程中不会为进度通知分配任何 Runnable 对象。
+             */
+            private class ProgressNotifier implements Runnable {
+                private int mProgress;
+                private int mMax;
+                private T mItem;
+                private boolean mPosted;
+
+                void update(int progress, int max, T item) {
+                    synchronized (this) {
+                        mProgress = progress;
+                        mMax = max;
+                        mItem = item;
+
+                        if (mPosted) {
+                            return;
+                        }
+                        mPosted = true;
+                    }
+
+                    post(this);
+                }
+
+                @Override
+                public void run() {
+                    int progress;
+                    int max;
+                    T item;
+
+                    synchronized (this) {
+                        progress = mProgress;
+                        max = mMax;
+                        item = mItem;
+
+                        mItem = null;
+                        mPosted = false;
+                    }
+
+                    for (ScanTask task : mSubscribers) {
+                        if (!task.isCancelled()) {
+                            task.mCallback.onUpdateProgress(progress, max, item);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 增量扫描器的回调接口。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see IncrementalScanner
+     */
+    public interface OnDeltaScanCallback<T> {
+        /**
+         * 开始扫描。
+         */
+        void onStartScan();
+
+        /**
+         * 扫描完成。
+         *
+         * @param delta 自上次扫描以来发生的变化
+         */
+        void onFinished(Delta<T> delta);
+    }
+
+    /**
+     * 两次扫描之间媒体库发生的变化。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     */
+    public static final class Delta<T> {
+        private final boolean mFullScan;
+        private final List<T> mAdded;
+        private final List<T> mUpdated;
+        private final long[] mRemovedIds;
+
+        // 与 mAdded、mUpdated 一一对应的 _id
+        final long[] mAddedIds;
+        final long[] mUpdatedIds;
+
+        Delta(boolean fullScan,
+              List<T> added, long[] addedIds,
+              List<T> updated, long[] updatedIds,
+              long[] removedIds) {
+            mFullScan = fullScan;
+            mAdded = added;
+            mAddedIds = addedIds;
+            mUpdated = updated;
+            mUpdatedIds = updatedIds;
+            mRemovedIds = removedIds;
+        }
+
+        /**
+         * 是否是一次完整扫描。
+         * <p>
+         * 第一次扫描（或调用 {@link IncrementalScanner#reset()} 后的第一次扫描）是完整扫描，此时所有媒体文件都会
+         * 出现在 {@link #getAdded()} 中。
+         */
+        public boolean isFullScan() {
+            return mFullScan;
+        }
+
+        /**
+         * 新增的媒体文件。
+         */
+        public List<T> getAdded() {
+            return mAdded;
+        }
+
+        /**
+         * 发生修改的媒体文件。
+         */
+        public List<T> getUpdated() {
+            return mUpdated;
+        }
+
+        /**
+         * 已被删除（或已不再满足 selection 条件）的媒体文件的 {@code _id}。
+         */
+        public long[] getRemovedIds() {
+            return mRemovedIds;
+        }
+
+        /**
+         * 媒体库是否没有发生任何变化。
+         */
+        public boolean isEmpty() {
+            return mAdded.isEmpty() && mUpdated.isEmpty() && mRemovedIds.length == 0;
+        }
+    }
+
+    /**
+     * 增量扫描器。
+     * <p>
+     * 增量扫描器会记住上次扫描时的水位线（{@code DATE_ADDED}/{@code DATE_MODIFIED} 的最大值，Android 11 及以上
+     * 版本使用 {@code GENERATION_MODIFIED} 的最大值）以及所有媒体文件的 {@code _id}。之后的每次扫描只会查询并解码
+     * 水位线之后发生变化的行，然后通过一次只查询 {@code _id} 列的查询检测被删除的媒体文件，最终以
+     * {@link Delta} 的形式将变化传递给回调接口。
+     * <p>
+     * 增量扫描器可以重复使用，但同一时间只能执行一次扫描。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see MediaStoreHelper#scanAudioIncrementally(ContentResolver, Decoder)
+     * @see MediaStoreHelper#scanVideoIncrementally(ContentResolver, Decoder)
+     * @see MediaStoreHelper#scanImagesIncrementally(ContentResolver, Decoder)
+     */
+    public static class IncrementalScanner<T> {
+        private static final long[] EMPTY_IDS = new long[0];
+
+        private String[] mProjection;
+        private String mSelection;
+        private String[] mSelectionArgs;
+        private String mSortOrder;
+
+        private Uri mUri;
+        private ContentResolver mResolver;
+        private Decoder<T> mDecoder;
+        private Handler mMainHandler;
+        private Executor mScanExecutor;
+
+        private boolean mRunning;
+        private boolean mCancelled;
+        // 当前（或最近一次）扫描的 CancellationSignal，扫描结束后仍会保留，直到下一次扫描开始
+        private CancellationSignal mCancellationSignal;
+        // 已更新水位线的扫描结果在传递给回调接口之前被取消，下一次扫描需要是一次完整扫描
+        private boolean mDeltaDiscarded;
+
+        // 以下字段只会在扫描线程中访问，mRunning 的同步保证了相邻两次扫描之间的可见性
+        private long[] mKnownIds;
+        private long mDateWatermark;
+        private long mGenerationWatermark;
+        // 日期位于水位线上的行的 _id 与 DATE_MODIFIED，用于排除下次扫描时因 >= 条件而被重新查询到的未修改的行
+        private Map<Long, Long> mWatermarkRows = Collections.emptyMap();
+        // 所有增量扫描共享同一个字符串池，这样每次扫描到的新增或修改的行都会与之前的扫描结果共享相同的字符串实例
+        private StringPool mStringPool = new StringPool();
+
+        public IncrementalScanner(@NonNull Uri uri, @NonNull ContentResolver resolver, @NonNull Decoder<T> decoder) {
+            ObjectUtil.requireNonNull(uri);
+            ObjectUtil.requireNonNull(resolver);
+            ObjectUtil.requireNonNull(decoder);
+
+            mUri = uri;
+            mResolver = resolver;
+            mDecoder = decoder;
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 projection 部分参数。
+         * <p>
+         * 增量扫描需要读取 {@code _id}、{@code DATE_ADDED}、{@code DATE_MODIFIED}（以及 Android 11 及以上版本的
+         * {@code GENERATION_MODIFIED}）列，如果 projection 中不包含这些列，则会被自动添加。如果没有设置
+         * projection，则会使用 {@link Decoder#requiredColumns()} 方法返回的列。
+         */
+        public IncrementalScanner<T> projection(String[] projection) {
+            mProjection = projection;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 selection 部分参数。
+         * <p>
+         * 修改 selection 后，应调用 {@link #reset()} 方法，否则增量扫描的结果将是不准确的。
+         */
+        public IncrementalScanner<T> selection(String selection) {
+            mSelection = selection;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 selectionArgs 部分参数。
+         * <p>
+         * 修改 selectionArgs 后，应调用 {@link #reset()} 方法，否则增量扫描的结果将是不准确的。
+         */
+        public IncrementalScanner<T> selectionArgs(String[] args) {
+            mSelectionArgs = args;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 sortOrder 部分参数，用于对新增与修改的媒体文件进行排序。
+         */
+        public IncrementalScanner<T> sortOrder(String sortOrder) {
+            mSortOrder = sortOrder;
+            return this;
+        }
+
+        /**
+         * 设置用于执行扫描任务的 Executor。
+         *
+         * @param executor Executor 对象，为 null 时使用 {@link MediaStoreHelper#setExecutor(Executor)} 方法设置的
+         *                 Executor
+         */
+        public IncrementalScanner<T> executor(@Nullable Executor executor) {
+            mScanExecutor = executor;
+            return this;
+        }
+
+        /**
+         * 清除水位线，下一次扫描将是一次完整扫描。
+         *
+         * @throws IllegalStateException 如果扫描器正在扫描
+         */
+        public synchronized void reset() throws IllegalStateException {
+            if (mRunning) {
+                throw new IllegalStateException("scanner is running.");
+            }
+
+            clearState();
+        }
+
+        private void clearState() {
+            mKnownIds = null;
+            mDateWatermark = 0;
+            mGenerationWatermark = 0;
+            mWatermarkRows = Collections.emptyMap();
+            mStringPool = new StringPool();
+            mDeltaDiscarded = false;
+        }
+
+        /**
+         * 取消当前正在进行的扫描。被取消的扫描不会更新水位线，也不会调用回调接口的 onFinished 方法。
+         * <p>
+         * 如果 ContentProvider 端的查询仍在执行，该查询会被中止。如果扫描已经结束但 onFinished 方法还未被调用，
+         * 那么本次扫描的结果会被丢弃，此时水位线已被更新，因此下一次扫描将是一次完整扫描。
+         */
+        public void cancel() {
+            CancellationSignal signal;
+            synchronized (this) {
+                mCancelled = true;
+                signal = mCancellationSignal;
+            }
+
+            if (signal != null) {
+                signal.cancel();
+            }
+        }
+
+        protected synchronized final boolean isRunning() {
+            return mRunning;
+        }
+
+        protected synchronized final boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * 开始扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
+         */
+        public void scan(@NonNull final OnDeltaScanCallback<T> callback) throws IllegalStateException {
+            ObjectUtil.requireNonNull(callback);
+
+            start();
+
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    CancellationSignal signal = getCancellationSignal();
+                    Delta<T> delta;
+                    try {
+                        notifyStartScan(callback);
+                        delta = scanDelta();
+                    } finally {
+                        finish();
+                    }
+
+                    // 先结束扫描再通知回调接口，这样回调接口中可以立即开始下一次扫描
+                    if (delta != null) {
+                        notifyFinished(callback, delta, signal);
+                    }
+                }
+            });
+        }
+
+        synchronized final void start() throws IllegalStateException {
+            if (mRunning) {
+                throw new IllegalStateException("scanner is running.");
+            }
+
+            if (mDeltaDiscarded) {
+                clearState();
+            }
+
+            mRunning = true;
+            mCancelled = false;
+            mCancellationSignal = new CancellationSignal();
+        }
+
+        synchronized final void finish() {
+            // 保留 mCancellationSignal，这样在结果被传递之前调用 cancel() 方法仍然可以取消本次扫描
+            mRunning = false;
+        }
+
+        private synchronized void discardDelta() {
+            mDeltaDiscarded = true;
+        }
+
+        private synchronized CancellationSignal getCancellationSignal() {
+            return mCancellationSignal;
+        }
+
+        /**
+         * 使用扫描器的 Executor 执行扫描任务，只能在 {@link #start()} 之后调用。如果 Executor 拒绝执行该任务，
+         * 则会调用 {@link #finish()} 方法结束扫描，然后重新抛出异常。
+         */
+        final void execute(Runnable task) throws RejectedExecutionException {
+            try {
+                getExecutor(mScanExecutor).execute(task);
+            } catch (RejectedExecutionException e) {
+                finish();
+                throw e;
+            }
+        }
+
+        /**
+         * 恢复上次扫描时的状态，只能在 {@link #start()} 与 {@link #finish()} 之间调用。
+         */
+        final void restoreState(long[] knownIds,
+                                long dateWatermark,
+                                long generationWatermark,
+                                Map<Long, Long> watermarkRows) {
+            mKnownIds = knownIds;
+            mDateWatermark = dateWatermark;
+            mGenerationWatermark = generationWatermark;
+            mWatermarkRows = watermarkRows;
+        }
+
+        final long[] getKnownIds() {
+            return mKnownIds;
+        }
+
+        final long getDateWatermark() {
+            return mDateWatermark;
+        }
+
+        final long getGenerationWatermark() {
+            return mGenerationWatermark;
+        }
+
+        final Map<Long, Long> getWatermarkRows() {
+            return mWatermarkRows;
+        }
+
+        final Uri getUri() {
+            return mUri;
+        }
+
+        final String getQueryKey() {
+            return mUri + "|" + mSelection + "|" + Arrays.toString(mSelectionArgs);
+        }
+
+        /**
+         * 在当前线程中执行一次增量扫描，只能在 {@link #start()} 与 {@link #finish()} 之间调用。
+         *
+         * @return 本次扫描得到的变化，扫描被取消或查询失败时返回 null
+         */
+        @Nullable
+        final Delta<T> scanDelta() {
+            try {
+                return queryDelta(getCancellationSignal());
+            } catch (OperationCanceledException e) {
+                return null;
+            }
+        }
+
+        @Nullable
+        private Delta<T> queryDelta(CancellationSignal signal) {
+            boolean fullScan = mKnownIds == null;
+            boolean useGeneration = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+
+            String selection = mSelection;
+            String[] selectionArgs = mSelectionArgs;
+            if (!fullScan) {
+                if (useGeneration) {
+                    selection = appendSelection(selection, MediaStore.MediaColumns.GENERATION_MODIFIED + ">?");
+                    selectionArgs = appendSelectionArgs(selectionArgs, String.valueOf(mGenerationWatermark));
+                } else {
+                    // DATE_MODIFIED 的精度为秒，因此使用 >= 避免漏掉与水位线处于同一秒内的修改；
+                    // 通过 DATE_ADDED 检测新增的文件（复制得到的文件可能保留了较早的 DATE_MODIFIED）
+                    selection = appendSelection(selection, MediaStore.MediaColumns.DATE_ADDED + ">=? OR "
+                            + MediaStore.MediaColumns.DATE_MODIFIED + ">=?");
+                    String watermark = String.valueOf(mDateWatermark);
+                    selectionArgs = appendSelectionArgs(selectionArgs, watermark, watermark);
+                }
+            }
+
+            Cursor cursor = ContentResolverCompat.query(mResolver, mUri, getProjection(useGeneration),
+                    selection, selectionArgs, mSortOrder, signal);
+            if (cursor == null) {
+                return null;
+            }
+
+            List<T> added = new ArrayList<>();
+            List<T> updated = new ArrayList<>();
+            LongArray addedIds = new LongArray(fullScan ? cursor.getCount() : 16);
+            LongArray updatedIds = new LongArray(16);
+            LongArray changedIds = new LongArray(fullScan ? cursor.getCount() : 16);
+
+            // 文件的修改时间可能位于将来，因此水位线不能超过当前时间，否则之后的修改可能会被遗漏
+            long now = System.currentTimeMillis() / 1000;
+            long dateWatermark = Math.min(mDateWatermark, now);
+            long generationWatermark = mGenerationWatermark;
+            Map<Long, Long> watermarkRows = new HashMap<>();
+
+            try {
+                if (cursor.moveToFirst()) {
+                    Columns columns = new Columns(cursor, mStringPool);
+                    int dateAddedIndex = columns.indexOf(MediaStore.MediaColumns.DATE_ADDED);
+                    int dateModifiedIndex = columns.indexOf(MediaStore.MediaColumns.DATE_MODIFIED);
+                    int generationIndex = useGeneration ? columns.indexOf(MediaStore.MediaColumns.GENERATION_MODIFIED) : -1;
+
+                    do {
+                        long id = Decoder.getId(cursor, columns);
+                        long dateModified = cursor.getLong(dateModifiedIndex);
+                        long date = Math.min(Math.max(cursor.getLong(dateAddedIndex), dateModified), now);
+
+                        if (date > dateWatermark) {
+                            dateWatermark = date;
+                            watermarkRows.clear();
+                        }
+                        if (date == dateWatermark) {
+                            watermarkRows.put(id, dateModified);
+                        }
+                        if (useGeneration) {
+                            generationWatermark = Math.max(generationWatermark, cursor.getLong(generationIndex));
+                        }
+
+                        boolean known = !fullScan && Arrays.binarySearch(mKnownIds, id) >= 0;
+
+                        // 上次扫描时位于水位线上的行会因 >= 条件被再次查询到，DATE_MODIFIED 没有变化说明该行未被修改
+                        if (known && !useGeneration && Long.valueOf(dateModified).equals(mWatermarkRows.get(id))) {
+                            continue;
+                        }
+
+                        T item = mDecoder.decode(cursor, columns);
+                        if (known) {
+                            updated.add(item);
+                            updatedIds.add(id);
+                        } else {
+                            added.add(item);
+                            addedIds.add(id);
+                        }
+                        changedIds.add(id);
+                    } while (cursor.moveToNext() && !isCancelled());
+                }
+            } finally {
+                cursor.close();
+            }
+
+            long[] currentIds = fullScan ? changedIds.toSortedArray() : queryIds(signal);
+            if (currentIds == null || isCancelled()) {
+                return null;
+            }
+
+            long[] removedIds = fullScan ? EMPTY_IDS : subtract(mKnownIds, currentIds);
+
+            // 只记住已经报告过的 _id。在两次查询之间新增的行不会被记住，下一次扫描时它们会被当作新增的行报告。
+            mKnownIds = fullScan ? currentIds : retain(currentIds, mKnownIds, changedIds.toSortedArray());
+
+            mDateWatermark = dateWatermark;
+            mGenerationWatermark = generationWatermark;
+            mWatermarkRows = watermarkRows;
+
+            return new Delta<>(fullScan,
+                    added, addedIds.toArray(),
+                    updated, updatedIds.toArray(),
+                    removedIds);
+        }
+
+        private String[] getProjection(boolean useGeneration) {
+            String[] projection = mProjection != null ? mProjection : mDecoder.requiredColumns();
+            if (projection == null) {
+                return null;
+            }
+
+            List<String> columns = new ArrayList<>(Arrays.asList(projection));
+            addIfAbsent(columns, MediaStore.MediaColumns._ID);
+            addIfAbsent(columns, MediaStore.MediaColumns.DATE_ADDED);
+            addIfAbsent(columns, MediaStore.MediaColumns.DATE_MODIFIED);
+            if (useGeneration) {
+                addIfAbsent(columns, MediaStore.MediaColumns.GENERATION_MODIFIED);
+            }
+
+            return columns.toArray(new String[0]);
+        }
+
+        private static void addIfAbsent(List<String> columns, String column) {
+            if (!columns.contains(column)) {
+                columns.add(column);
+            }
+        }
+
+        @Nullable
+        private long[] queryIds(CancellationSignal signal) {
+            Cursor cursor = ContentResolverCompat.query(mResolver, mUri,
+                    new String[]{MediaStore.MediaColumns._ID},
+                    mSelection,
+                    mSelectionArgs,
+                    MediaStore.MediaColumns._ID + " ASC",
+                    signal);
+
+            if (cursor == null) {
+                return null;
+            }
+
+            try {
+                LongArray ids = new LongArray(cursor.getCount());
+                while (cursor.moveToNext() && !isCancelled()) {
+                    ids.add(cursor.getLong(0));
+                }
+                return ids.toSortedArray();
+            } finally {
+                cursor.close();
+            }
+        }
+
+        // 返回有序数组 a 中不在有序数组 b 中的元素
+        @VisibleForTesting
+        static long[] subtract(long[] a, long[] b) {
+            LongArray result = new LongArray(16);
+            int j = 0;
+            for (long id : a) {
+                while (j < b.length && b[j] < id) {
+                    j++;
+                }
+                if (j >= b.length || b[j] != id) {
+                    result.add(id);
+                }
+            }
+            return result.toSortedArray();
+        }
+
+        // 返回有序数组 current 中出现在有序数组 known 或 changed 中的元素
+        @VisibleForTesting
+        static long[] retain(long[] current, long[] known, long[] changed) {
+            LongArray result = new LongArray(current.length);
+            for (long id : current) {
+                if (Arrays.binarySearch(known, id) >= 0 || Arrays.binarySearch(changed, id) >= 0) {
+                    result.add(id);
+                }
+            }
+            return result.toSortedArray();
+        }
+
+        private void notifyStartScan(final OnDeltaScanCallback<T> callback) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onStartScan();
+                }
+            });
+        }
+
+        private void notifyFinished(final OnDeltaScanCallback<T> callback,
+                                    final Delta<T> delta,
+                                    final CancellationSignal signal) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // 扫描结束后、onFinished 方法执行前调用了 cancel() 方法
+                    if (signal.isCanceled()) {
+                        discardDelta();
+                        return;
+                    }
+
+                    callback.onFinished(delta);
+                }
+            });
+        }
+    }
+
+    /**
+     * 用于将扫描结果写入磁盘快照以及从磁盘快照中读取扫描结果。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see CachedScanner
+     */
+    public interface SnapshotCodec<T> {
+        /**
+         * 将实体对象写入到快照中。
+         */
+        void write(T item, DataOutput out) throws IOException;
+
+        /**
+         * 从快照中读取实体对象，读取的顺序必须与 {@link #write(Object, DataOutput)} 方法的写入顺序一致。
+         */
+        T read(DataInput in) throws IOException;
+    }
+
+    /**
+     * 带缓存的扫描器的回调接口。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see CachedScanner
+     */
+    public interface OnCachedScanCallback<T> {
+        /**
+         * 磁盘快照加载完成。
+         * <p>
+         * 该方法只会在第一次扫描且存在可用的磁盘快照时被调用，此时可以立即显示上次的扫描结果，之后的
+         * {@link #onFinished(List, Delta)} 方法会传递与媒体库同步后的扫描结果。
+         *
+         * @param items 磁盘快照中保存的扫描结果
+         */
+        void onSnapshotLoaded(List<T> items);
+
+        /**
+         * 扫描完成。
+         *
+         * @param items 与媒体库同步后的全部扫描结果
+         * @param delta 本次扫描相对于上次扫描结果（或磁盘快照）的变化
+         */
+        void onFinished(List<T> items, Delta<T> delta);
+    }
+
+    /**
+     * 带磁盘缓存的扫描器。
+     * <p>
+     * 每次扫描完成后，扫描结果与 {@link IncrementalScanner} 的水位线会被写入一个紧凑的二进制快照文件中（位于
+     * 应用的缓存目录下）。冷启动后的第一次扫描会先将快照映射到内存中读取，并立即通过
+     * {@link OnCachedScanCallback#onSnapshotLoaded(List)} 方法传递给回调接口，然后再在后台执行一次增量扫描，
+     * 将快照与媒体库同步。
+     * <p>
+     * 快照以 Uri、selection、selectionArgs、MediaStore 的版本（Android 10 及以上版本）以及 codecVersion 作为
+     * key，key 不匹配的快照会被忽略。新增的媒体文件会被追加到扫描结果的末尾，如果需要特定的顺序，请自行排序。
+     * <p>
+     * 注意！每次修改 {@link SnapshotCodec} 的读写格式（例如为实体类新增字段）时，都必须增大 codecVersion，
+     * 否则新版本的应用会使用新的 SnapshotCodec 读取旧格式的快照。
+     * <p>
+     * <b>例：</b><br>
+     * <code>
+     * <pre>
+     * CachedScanner&lt;Song&gt; scanner = new CachedScanner&lt;&gt;(context, "songs",
+     *         MediaStoreHelper.scanAudioIncrementally(resolver, decoder),
+     *         songCodec, SONG_CODEC_VERSION);
+     *
+     * scanner.scan(callback);
+     * </pre>
+     * </code>
+     *
+     * @param <T> 媒体文件对应的实体类型
+     */
+    public static class CachedScanner<T> {
+        private static final String SNAPSHOT_DIR = "media-helper";
+
+        private Context mContext;
+        private File mSnapshotFile;
+        private IncrementalScanner<T> mScanner;
+        private SnapshotCodec<T> mCodec;
+        private int mCodecVersion;
+        private Handler mMainHandler;
+
+        // 只会在扫描线程中访问
+        private LinkedHashMap<Long, T> mItems;
+
+        /**
+         * 创建一个 CachedScanner 对象。
+         *
+         * @param context Context 对象，不能为 null
+         * @param name    快照的名称，不同的 CachedScanner 应使用不同的名称，不能为 null
+         * @param scanner 用于同步快照与媒体库的增量扫描器，不能为 null。该扫描器只应被当前 CachedScanner 使用。
+         * @param codec        用于读写快照的 {@link SnapshotCodec} 对象，不能为 null
+         * @param codecVersion codec 的读写格式的版本，每次修改读写格式时都必须增大该值，版本不同的快照会被忽略
+         */
+        public CachedScanner(@NonNull Context context,
+                             @NonNull String name,
+                             @NonNull IncrementalScanner<T> scanner,
+                             @NonNull SnapshotCodec<T> codec,
+                             int codecVersion) {
+            ObjectUtil.requireNonNull(context);
+            ObjectUtil.requireNonNull(name);
+            ObjectUtil.requireNonNull(scanner);
+            ObjectUtil.requireNonNull(codec);
+
+            mContext = context.getApplicationContext();
+            mSnapshotFile = new File(new File(mContext.getCacheDir(), SNAPSHOT_DIR), name + ".snapshot");
+            mScanner = scanner;
+            mCodec = codec;
+            mCodecVersion = codecVersion;
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        /**
+         * 取消当前正在进行的扫描。
+         */
+        public void cancel() {
+            mScanner.cancel();
+        }
+
+        /**
+         * 开始扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
+         */
+        public void scan(@NonNull final OnCachedScanCallback<T> callback) throws IllegalStateException {
+            ObjectUtil.requireNonNull(callback);
+
+            mScanner.start();
+
+            mScanner.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (mItems == null) {
+                            loadSnapshot(callback);
+                        }
+
+                        Delta<T> delta = mScanner.scanDelta();
+                        if (delta == null) {
+                            return;
+                        }
+
+                        applyDelta(delta);
+                        if (!delta.isEmpty()) {
+                            saveSnapshot();
+                        }
+
+                        notifyFinished(callback, new ArrayList<>(mItems.values()), delta);
+                    } finally {
+                        mScanner.finish();
+                    }
+                }
+            });
+        }
+
+        private void loadSnapshot(OnCachedScanCallback<T> callback) {
+            mItems = new LinkedHashMap<>();
+
+            ScanSnapshot<T> snapshot = ScanSnapshot.read(mSnapshotFile, getSnapshotKey(), mCodec);
+            if (snapshot == null) {
+                // 没有可用的快照，强制执行一次完整扫描
+                mScanner.restoreState(null, 0, 0, Collections.<Long, Long>emptyMap());
+                return;
+            }
+
+            mItems = snapshot.items;
+
+            LongArray ids = new LongArray(mItems.size());
+            for (Long id : mItems.keySet()) {
+                ids.add(id);
+            }
+            mScanner.restoreState(ids.toSortedArray(),
+                    snapshot.dateWatermark,
+                    snapshot.generationWatermark,
+                    snapshot.watermarkRows);
+
+            notifySnapshotLoaded(callback, new ArrayList<>(mItems.values()));
+        }
+
+        private void applyDelta(Delta<T> delta) {
+            if (delta.isFullScan()) {
+                mItems.clear();
+            }
+
+            for (long id : delta.getRemovedIds()) {
+                mItems.remove(id);
+            }
+
+            List<T> updated = delta.getUpdated();
+            for (int i = 0; i < updated.size(); i++) {
+                mItems.put(delta.mUpdatedIds[i], updated.get(i));
+            }
+
+            List<T> added = delta.getAdded();
+            for (int i = 0; i < added.size(); i++) {
+                mItems.put(delta.mAddedIds[i], added.get(i));
+            }
+
+            // 移除在两次查询之间被删除的行，保证扫描结果与增量扫描器记住的 _id 一致
+            long[] knownIds = mScanner.getKnownIds();
+            Iterator<Long> iterator = mItems.keySet().iterator();
+            while (iterator.hasNext()) {
+                if (Arrays.binarySearch(knownIds, iterator.next()) < 0) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        private void saveSnapshot() {
+            ScanSnapshot<T> snapshot = new ScanSnapshot<>(
+                    mScanner.getDateWatermark(),
+                    mScanner.getGenerationWatermark(),
+                    mScanner.getWatermarkRows(),
+                    mItems);
+
+            try {
+                snapshot.write(mSnapshotFile, getSnapshotKey(), mCodec);
+            } catch (IOException e) {
+                // 快照只是缓存，写入失败时忽略即可，下次冷启动时会执行完整扫描
+                mSnapshotFile.delete();
+            }
+        }
+
+        private String getSnapshotKey() {
+            String version = "";
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                version = MediaStore.getVersion(mContext);
+            }
+
+            return mScanner.getQueryKey() + "|" + version + "|" + mCodecVersion;
+        }
+
+        private void notifySnapshotLoaded(final OnCachedScanCallback<T> callback, final List<T> items) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onSnapshotLoaded(items);
+                }
+            });
+        }
+
+        private void notifyFinished(final OnCachedScanCallback<T> callback, final List<T> items, final Delta<T> delta) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFinished(items, delta);
+                }
+            });
+        }
+    }
+
+    /**
+     * 实时扫描器，用于保持扫描结果与媒体库同步。
+     * <p>
+     * 实时扫描器会在 Uri 上注册一个 ContentObserver，并在媒体库发生变化时使用 {@link IncrementalScanner}
+     * 执行一次增量扫描，然后通过 {@link OnDeltaScanCallback#onFinished(Delta)} 方法传递变化。由于 MediaScanner
+     * 在复制文件时可能会连续发出成百上千个变化通知，因此变化通知会被合并：在最后一个通知之后的
+     * {@link #debounce(int)} 毫秒内没有新的通知时才会执行扫描；如果通知一直持续不断，那么每
+     * {@link #maxDelay(int)} 毫秒最多执行一次扫描。
+     * <p>
+     * 调用 {@link #start(OnDeltaScanCallback)} 方法后会立即执行一次扫描。除此之外，只有媒体库发生了变化的扫描
+     * 才会调用回调接口的 {@code onFinished} 方法。
+     * <p>
+     * <b>注意！该类的所有方法都必须在主线程中调用。</b>
+     *
+     * @param <T> 媒体文件对应的实体类型
+     */
+    public static class LiveScanner<T> {
+        public static final int DEFAULT_DEBOUNCE = 500;
+        public static final int DEFAULT_MAX_DELAY = 3000;
+
+        private ContentResolver mResolver;
+        private IncrementalScanner<T> mScanner;
+        private Handler mMainHandler;
+
+        private int mDebounce;
+        private int mMaxDelay;
+
+        private OnDeltaScanCallback<T> mCallback;
+        private ContentObserver mContentObserver;
+        private Runnable mRefreshTask;
+
+        private long mFirstChangeTime;
+        private boolean mChangePending;
+        private boolean mRefreshPending;
+
+        /**
+         * 创建一个 LiveScanner 对象。
+         *
+         * @param resolver ContentResolver 对象，不能为 null
+         * @param scanner  增量扫描器，不能为 null。该扫描器只应被当前 LiveScanner 使用。
+         */
+        public LiveScanner(@NonNull ContentResolver resolver, @NonNull IncrementalScanner<T> scanner) {
+            ObjectUtil.requireNonNull(resolver);
+            ObjectUtil.requireNonNull(scanner);
+
+            mResolver = resolver;
+            mScanner = scanner;
+            mMainHandler = new Handler(Looper.getMainLooper());
+
+            mDebounce = DEFAULT_DEBOUNCE;
+            mMaxDelay = DEFAULT_MAX_DELAY;
+
+            mRefreshTask = new Runnable() {
+                @Override
+                public void run() {
+                    mChangePending = false;
+                    refresh();
+                }
+            };
+        }
+
+        /**
+         * 设置合并变化通知的时间窗口（单位：毫秒），默认为 {@link #DEFAULT_DEBOUNCE}。
+         *
+         * @param debounce 时间窗口，不能小于 0
+         */
+        public LiveScanner<T> debounce(int debounce) {
+            if (debounce < 0) {
+                throw new IllegalArgumentException("debounce must not be negative.");
+            }
+
+            mDebounce = debounce;
+            return this;
+        }
+
+        /**
+         * 设置从收到第一个变化通知到执行扫描的最大延迟时间（单位：毫秒），默认为 {@link #DEFAULT_MAX_DELAY}。
+         *
+         * @param maxDelay 最大延迟时间，不能小于 0
+         */
+        public LiveScanner<T> maxDelay(int maxDelay) {
+            if (maxDelay < 0) {
+                throw new IllegalArgumentException("maxDelay must not be negative.");
+            }
+
+            mMaxDelay = maxDelay;
+            return this;
+        }
+
+        /**
+         * 开始监听媒体库的变化，并立即执行一次扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException 如果已经调用过该方法，并且还没有调用 {@link #stop()} 方法
+         */
+        public void start(@NonNull OnDeltaScanCallback<T> callback) throws IllegalStateException {
+            ObjectUtil.requireNonNull(callback);
+
+            if (isStarted()) {
+                throw new IllegalStateException("scanner is started.");
+            }
+
+            mCallback = callback;
+            mContentObserver = new ContentObserver(mMainHandler) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    onMediaStoreChanged();
+                }
+            };
+
+            mResolver.registerContentObserver(mScanner.getUri(), true, mContentObserver);
+            refresh();
+        }
+
+        /**
+         * 停止监听媒体库的变化，并取消正在进行的扫描。
+         */
+        public void stop() {
+            if (!isStarted()) {
+                return;
+            }
+
+            mResolver.unregisterContentObserver(mContentObserver);
+            mMainHandler.removeCallbacks(mRefreshTask);
+            mScanner.cancel();
+
+            mContentObserver = null;
+            mCallback = null;
+            mChangePending = false;
+            mRefreshPending = false;
+        }
+
+        /**
+         * 是否正在监听媒体库的变化。
+         */
+        public boolean isStarted() {
+            return mContentObserver != null;
+        }
+
+        private void onMediaStoreChanged() {
+            long now = SystemClock.uptimeMillis();
+            if (!mChangePending) {
+                mChangePending = true;
+                mFirstChangeTime = now;
+            }
+
+            long delay = Math.min(mDebounce, mFirstChangeTime + mMaxDelay - now);
+
+            mMainHandler.removeCallbacks(mRefreshTask);
+            mMainHandler.postDelayed(mRefreshTask, Math.max(delay, 0));
+        }
+
+        private void refresh() {
+            if (!isStarted()) {
+                return;
+            }
+
+            // 上一次扫描还未结束，等它结束后再扫描一次
+            if (mScanner.isRunning()) {
+                mRefreshPending = true;
+                return;
+            }
+
+            mRefreshPending = false;
+            final OnDeltaScanCallback<T> callback = mCallback;
+
+            // 不使用 IncrementalScanner.scan() 方法，因为被取消或查询失败的扫描不会调用回调接口，
+            // 而 LiveScanner 需要在每次扫描结束时检查是否还有等待执行的扫描
+            mScanner.start();
+            mScanner.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Delta<T> delta = null;
+                    try {
+                        notifyStartScan(callback);
+                        delta = mScanner.scanDelta();
+                    } finally {
+                        mScanner.finish();
+                        notifyScanEnded(callback, delta);
+                    }
+                }
+            });
+        }
+
+        private void notifyStartScan(final OnDeltaScanCallback<T> callback) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (callback == mCallback) {
+                        callback.onStartScan();
+                    }
+                }
+            });
+        }
+
+        /**
+         * 每次扫描结束时都会调用，包括被取消或查询失败的扫描（此时 delta 为 null）。
+         */
+        private void notifyScanEnded(final OnDeltaScanCallback<T> callback, @Nullable final Delta<T> delta) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // callback 与 mCallback 不同时，说明该扫描已被 stop() 方法停止
+                    if (delta != null && callback == mCallback && (delta.isFullScan() || !delta.isEmpty())) {
+                        callback.onFinished(delta);
+                    }
+
+                    // 即使该扫描已被停止，也要执行 stop() 之后的 start() 方法所等待的扫描
+                    if (mRefreshPending) {
+                        refresh();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * 查询的签名，用于识别相同的扫描。QueryKey 会复制数组参数，因此之后修改这些数组不会影响 QueryKey。
+     */
+    static final class QueryKey {
+        private final Uri mUri;
+        private final String[] mProjection;
+        private final String mSelection;
+        private final String[] mSelectionArgs;
+        private final String mSortOrder;
+        private final Object mDecoder;
+
+        QueryKey(Uri uri,
+                 String[] projection,
+                 String selection,
+                 String[] selectionArgs,
+                 String sortOrder,
+                 Object decoder) {
+            mUri = uri;
+            mProjection = projection == null ? null : projection.clone();
+            mSelection = selection;
+            mSelectionArgs = selectionArgs == null ? null : selectionArgs.clone();
+            mSortOrder = sortOrder;
+            mDecoder = decoder;
+        }
+
+        Uri getUri() {
+            return mUri;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof QueryKey)) {
+                return false;
+            }
+
+            QueryKey other = (QueryKey) o;
+            return ObjectUtil.equals(mUri, other.mUri)
+                    && Arrays.equals(mProjection, other.mProjection)
+                    && ObjectUtil.equals(mSelection, other.mSelection)
+                    && Arrays.equals(mSelectionArgs, other.mSelectionArgs)
+                    && ObjectUtil.equals(mSortOrder, other.mSortOrder)
+                    && ObjectUtil.equals(mDecoder, other.mDecoder);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = ObjectUtil.hashCode(mUri);
+            result = 31 * result + Arrays.hashCode(mProjection);
+            result = 31 * result + ObjectUtil.hashCode(mSelection);
+            result = 31 * result + Arrays.hashCode(mSelectionArgs);
+            result = 31 * result + ObjectUtil.hashCode(mSortOrder);
+            result = 31 * result + ObjectUtil.hashCode(mDecoder);
+            return result;
+        }
+    }
+
+    static Executor getExecutor(@Nullable Executor executor) {
+        return executor == null ? mExecutor : executor;
+    }
+
+    static String appendSelection(String selection, String clause) {
+        if (selection == null || selection.isEmpty()) {
+            return clause;
+        }
+
+        return "(" + selection + ") AND (" + clause + ")";
+    }
+
+    static String[] appendSelectionArgs(String[] selectionArgs, String... args) {
+        if (selectionArgs == null || selectionArgs.length == 0) {
+            return args;
+        }
+
+        String[] result = Arrays.copyOf(selectionArgs, selectionArgs.length + args.length);
+        System.arraycopy(args, 0, result, selectionArgs.length, args.length);
+        return result;
+    }
+
+    /**
+     * 可自动扩容的 long 数组，用于在扫描时收集 {@code _id}，避免装箱。
+     */
+    static final class LongArray {
+        private long[] mValues;
+        private int mSize;
+
+        LongArray(int initialCapacity) {
+            mValues = new long[Math.max(initialCapacity, 1)];
+        }
+
+        void add(long value) {
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(mValues, mSize);
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(mValues, mSize);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    /**
+     * {@link AudioTableScanner} 的回调接口。
+     */
+    public interface OnAudioTableScanCallback {
+        /**
+         * 开始扫描。
+         */
+        void onStartScan();
+
+        /**
+         * 扫描完成。
+         *
+         * @param table 扫描结果
+         */
+        void onFinished(AudioTable table);
+    }
+
+    /**
+     * 将音频文件扫描到列式结构的 {@link AudioTable} 中的扫描器。
+     *
+     * @see MediaStoreHelper#scanAudioTable(ContentResolver)
+     */
+    public static class AudioTableScanner {
+        private ContentResolver mResolver;
+        private Handler mMainHandler;
+
+        private String mSelection;
+        private String[] mSelectionArgs;
+        private String mSortOrder;
+        private Executor mScanExecutor;
+
+        private final ScanLifecycle mLifecycle = new ScanLifecycle();
+
+        AudioTableScanner(ContentResolver resolver) {
+            mResolver = resolver;
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 selection 部分参数。
+         */
+        public AudioTableScanner selection(String selection) {
+            mSelection = selection;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 selectionArgs 部分参数。
+         */
+        public AudioTableScanner selectionArgs(String[] args) {
+            mSelectionArgs = args;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 sortOrder 部分参数。
+         */
+        public AudioTableScanner sortOrder(String sortOrder) {
+            mSortOrder = sortOrder;
+            return this;
+        }
+
+        /**
+         * 设置用于执行扫描任务的 Executor。
+         *
+         * @param executor Executor 对象，为 null 时使用 {@link MediaStoreHelper#setExecutor(Executor)} 方法设置的
+         *                 Executor
+         */
+        public AudioTableScanner executor(@Nullable Executor executor) {
+            mScanExecutor = executor;
+            return this;
+        }
+
+        /**
+         * 取消当前正在进行的扫描。被取消的扫描不会调用回调接口的 onFinished 方法。扫描被取消后，可以再次调用
+         * scan 方法开始新的扫描。
+         * <p>
+         * 如果 ContentProvider 端的查询仍在执行，该查询会被中止。
+         */
+        public void cancel() {
+            mLifecycle.cancel();
+        }
+
+        /**
+         * 开始扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
+         */
+        public void scan(@NonNull final OnAudioTableScanCallback callback) throws IllegalStateException {
+            ObjectUtil.requireNonNull(callback);
+
+            final ScanLifecycle.Run run = mLifecycle.begin();
+            ScanLifecycle.execute(getExecutor(mScanExecutor), run, new Runnable() {
+                @Override
+                public void run() {
+                    AudioTable table;
+                    try {
+                        notifyStartScan(callback);
+                        table = scanTable(run);
+                    } catch (OperationCanceledException e) {
+                        table = null;
+                    }
+
+                    if (table != null) {
+                        notifyFinished(run, callback, table);
+                    }
+                }
+            });
+        }
+
+        @Nullable
+        private AudioTable scanTable(ScanLifecycle.Run run) {
+            Cursor cursor = ContentResolverCompat.query(mResolver, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                    AudioTable.PROJECTION,
+                    mSelection,
+                    mSelectionArgs,
+                    mSortOrder,
+                    run.getCancellationSignal());
+
+            if (cursor == null) {
+                return AudioTable.empty();
+            }
+
+            try {
+                if (!cursor.moveToFirst()) {
+                    return AudioTable.empty();
+                }
+
+                AudioTable.Builder builder = new AudioTable.Builder(cursor);
+                do {
+                    builder.appendRow(cursor);
+                } while (cursor.moveToNext() && !run.isCancelled());
+
+                return run.isCancelled() ? null : builder.build();
+            } finally {
+                cursor.close();
+            }
+        }
+
+        private void notifyStartScan(final OnAudioTableScanCallback callback) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onStartScan();
+                }
+            });
+        }
+
+        private void notifyFinished(ScanLifecycle.Run run,
+                                    final OnAudioTableScanCallback callback,
+                                    final AudioTable table) {
+            run.postFinished(mMainHandler, new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFinished(table);
+                }
+            });
+        }
+    }
+
+    /**
+     * 组合扫描的结果。
+     *
+     * @param <A> 音频文件对应的实体类型
+     * @param <V> 视频文件对应的实体类型
+     * @param <I> 图片文件对应的实体类型
+     * @see CombinedScanner
+     */
+    public static final class CombinedResult<A, V, I> {
+        private final List<A> mAudio;
+        private final List<V> mVideo;
+        private final List<I> mImages;
+
+        CombinedResult(List<A> audio, List<V> video, List<I> images) {
+            mAudio = audio;
+            mVideo = video;
+            mImages = images;
+        }
+
+        /**
+         * 扫描到的音频文件。如果没有指定音频文件的 Decoder，则返回空列表。
+         */
+        public List<A> getAudio() {
+            return mAudio;
+        }
+
+        /**
+         * 扫描到的视频文件。如果没有指定视频文件的 Decoder，则返回空列表。
+         */
+        public List<V> getVideo() {
+            return mVideo;
+        }
+
+        /**
+         * 扫描到的图片文件。如果没有指定图片文件的 Decoder，则返回空列表。
+         */
+        public List<I> getImages() {
+            return mImages;
+        }
+    }
+
+    /**
+     * {@link CombinedScanner} 的回调接口。
+     */
+    public interface OnCombinedScanCallback<A, V, I> {
+        /**
+         * 开始扫描。
+         */
+        void onStartScan();
+
+        /**
+         * 扫描完成。
+         *
+         * @param result 扫描结果
+         */
+        void onFinished(CombinedResult<A, V, I> result);
+    }
+
+    /**
+     * 在一次查询中同时扫描音频、视频与图片文件的扫描器。
+     * <p>
+     * 组合扫描器会查询 {@code MediaStore.Files.getContentUri("external")}，并通过 {@code MEDIA_TYPE} 列过滤出
+     * 需要的媒体类型，然后根据每一行的 {@code MEDIA_TYPE} 使用对应的 Decoder 解码。与分别调用
+     * {@link MediaStoreHelper#scanAudio(ContentResolver, Decoder)}、
+     * {@link MediaStoreHelper#scanVideo(ContentResolver, Decoder)} 与
+     * {@link MediaStoreHelper#scanImages(ContentResolver, Decoder)} 相比，只需要一次查询与一次 Cursor 遍历。
+     * <p>
+     * 如果没有设置 projection，则会使用各 Decoder 的 {@link Decoder#requiredColumns()} 方法返回的列的并集；
+     * 只要有一个 Decoder 的 requiredColumns() 方法返回 null，就会查询所有的列。
+     *
+     * @see MediaStoreHelper#scanCombined(ContentResolver, Decoder, Decoder, Decoder)
+     */
+    public static class CombinedScanner<A, V, I> {
+        private ContentResolver mResolver;
+        private Handler mMainHandler;
+
+        private Decoder<A> mAudioDecoder;
+        private Decoder<V> mVideoDecoder;
+        private Decoder<I> mImagesDecoder;
+
+        private String[] mProjection;
+        private String mSelection;
+        private String[] mSelectionArgs;
+        private String mSortOrder;
+        private Executor mScanExecutor;
+
+        private final ScanLifecycle mLifecycle = new ScanLifecycle();
+
+        CombinedScanner(ContentResolver resolver,
+                        @Nullable Decoder<A> audioDecoder,
+                        @Nullable Decoder<V> videoDecoder,
+                        @Nullable Decoder<I> imagesDecoder) {
+            mResolver = resolver;
+            mAudioDecoder = audioDecoder;
+            mVideoDecoder = videoDecoder;
+            mImagesDecoder = imagesDecoder;
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 projection 部分参数。{@code MEDIA_TYPE} 列会被自动添加。
+         */
+        public CombinedScanner<A, V, I> projection(String[] projection) {
+            mProjection = projection;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 selection 部分参数。该 selection 会与 {@code MEDIA_TYPE} 的过滤条件
+         * 通过 AND 组合。
+         */
+        public CombinedScanner<A, V, I> selection(String selection) {
+            mSelection = selection;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 selectionArgs 部分参数。
+         */
+        public CombinedScanner<A, V, I> selectionArgs(String[] args) {
+            mSelectionArgs = args;
+            return this;
+        }
+
+        /**
+         * 设置 ContentResolver.query 方法的 sortOrder 部分参数。
+         */
+        public CombinedScanner<A, V, I> sortOrder(String sortOrder) {
+            mSortOrder = sortOrder;
+            return this;
+        }
+
+        /**
+         * 设置用于执行扫描任务的 Executor。
+         *
+         * @param executor Executor 对象，为 null 时使用 {@link MediaStoreHelper#setExecutor(Executor)} 方法设置的
+         *                 Executor
+         */
+        public CombinedScanner<A, V, I> executor(@Nullable Executor executor) {
+            mScanExecutor = executor;
+            return this;
+        }
+
+        /**
+         * 取消当前正在进行的扫描。被取消的扫描不会调用回调接口的 onFinished 方法。扫描被取消后，可以再次调用
+         * scan 方法开始新的扫描。
+         * <p>
+         * 如果 ContentProvider 端的查询仍在执行，该查询会被中止。
+         */
+        public void cancel() {
+            mLifecycle.cancel();
+        }
+
+        /**
+         * 开始扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
+         */
+        public void scan(@NonNull final OnCombinedScanCallback<A, V, I> callback) throws IllegalStateException {
+            ObjectUtil.requireNonNull(callback);
+
+            final ScanLifecycle.Run run = mLifecycle.begin();
+            ScanLifecycle.execute(getExecutor(mScanExecutor), run, new Runnable() {
+                @Override
+                public void run() {
+                    CombinedResult<A, V, I> result;
+                    try {
+                        notifyStartScan(callback);
+                        result = scanFiles(run);
+                    } catch (OperationCanceledException e) {
+                        result = null;
+                    }
+
+                    if (result != null) {
+                        notifyFinished(run, callback, result);
+                    }
+                }
+            });
+        }
+
+        @Nullable
+        private CombinedResult<A, V, I> scanFiles(ScanLifecycle.Run run) {
+            List<A> audio = new ArrayList<>();
+            List<V> video = new ArrayList<>();
+            List<I> images = new ArrayList<>();
+
+            Cursor cursor = ContentResolverCompat.query(mResolver,
+                    MediaStore.Files.getContentUri("external"),
+                    getProjection(),
+                    appendSelection(mSelection, getMediaTypeSelection()),
+                    mSelectionArgs,
+                    mSortOrder,
+                    run.getCancellationSignal());
+
+            if (cursor == null) {
+                return new CombinedResult<>(audio, video, images);
+            }
+
+            try {
+                if (!cursor.moveToFirst()) {
+                    return new CombinedResult<>(audio, video, images);
+                }
+
+                // 所有 Decoder 共享同一个 Columns 对象，因此列索引只需解析一次，字符串池也在所有媒体类型之间共享
+                Columns columns = new Columns(cursor, new StringPool());
+                int mediaTypeIndex = columns.indexOf(MediaStore.Files.FileColumns.MEDIA_TYPE);
+
+                do {
+                    switch (cursor.getInt(mediaTypeIndex)) {
+                        case MediaStore.Files.FileColumns.MEDIA_TYPE_AUDIO:
+                            audio.add(mAudioDecoder.decode(cursor, columns));
+                            break;
+                        case MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO:
+                            video.add(mVideoDecoder.decode(cursor, columns));
+                            break;
+                        case MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE:
+                            images.add(mImagesDecoder.decode(cursor, columns));
+                            break;
+                        default:
+                            break;
+                    }
+                } while (cursor.moveToNext() && !run.isCancelled());
+
+                return run.isCancelled() ? null : new CombinedResult<>(audio, video, images);
+            } finally {
+                cursor.close();
+            }
+        }
+
+        // 只查询指定了 Decoder 的媒体类型
+        private String getMediaTypeSelection() {
+            StringBuilder types = new StringBuilder();
+            appendMediaType(types, mAudioDecoder, MediaStore.Files.FileColumns.MEDIA_TYPE_AUDIO);
+            appendMediaType(types, mVideoDecoder, MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO);
+            appendMediaType(types, mImagesDecoder, MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE);
+
+            return MediaStore.Files.FileColumns.MEDIA_TYPE + " IN (" + types + ")";
+        }
+
+        private static void appendMediaType(StringBuilder types, Decoder<?> decoder, int mediaType) {
+            if (decoder == null) {
+                return;
+            }
+
+            if (types.length() > 0) {
+                types.append(',');
+            }
+            types.append(mediaType);
+        }
+
+        private String[] getProjection() {
+            String[] projection = mProjection;
+            if (projection == null) {
+                projection = mergeRequiredColumns();
+                if (projection == null) {
+                    return null;
+                }
+            }
+
+            List<String> columns = new ArrayList<>(Arrays.asList(projection));
+            if (!columns.contains(MediaStore.Files.FileColumns.MEDIA_TYPE)) {
+                columns.add(MediaStore.Files.FileColumns.MEDIA_TYPE);
+            }
+            return columns.toArray(new String[0]);
+        }
+
+        // 返回各 Decoder 需要的列的并集，只要有一个 Decoder 需要所有的列，就返回 null
+        @Nullable
+        private String[] mergeRequiredColumns() {
+            List<String> columns = new ArrayList<>();
+            Decoder<?>[] decoders = {mAudioDecoder, mVideoDecoder, mImagesDecoder};
+            for (Decoder<?> decoder : decoders) {
+                if (decoder == null) {
+                    continue;
+                }
+
+                String[] required = decoder.requiredColumns();
+                if (required == null) {
+                    return null;
+                }
+
+                for (String column : required) {
+                    if (!columns.contains(column)) {
+                        columns.add(column);
+                    }
+                }
+            }
+            return columns.toArray(new String[0]);
+        }
+
+        private void notifyStartScan(final OnCombinedScanCallback<A, V, I> callback) {
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onStartScan();
+                }
+            });
+        }
+
+        private void notifyFinished(ScanLifecycle.Run run,
+                                    final OnCombinedScanCallback<A, V, I> callback,
+                                    final CombinedResult<A, V, I> result) {
+            run.postFinished(mMainHandler, new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFinished(result);
+                }
+            });
+        }
+    }
+
+    private interface VolumeUriFactory {
+        Uri getContentUri(String volumeName);
+    }
+
+    /**
+     * 多存储卷扫描器。
+     * <p>
+     * Android 10 及以上版本中，每个外部存储卷（{@code MediaStore.getExternalVolumeNames}）都有自己的 content Uri。
+     * 多存储卷扫描器会在 Executor 上并行扫描每个存储卷，因此总的扫描耗时取决于最慢的存储卷，而不是所有存储卷
+     * 扫描耗时之和。所有存储卷都扫描完成后，扫描结果会被合并：如果调用 {@link #comparator(Comparator)} 方法设置了
+     * 与 sortOrder 一致的比较器，则会对各存储卷（已按 sortOrder 排好序的）扫描结果进行 k 路归并；否则会按存储卷的
+     * 顺序直接拼接各存储卷的扫描结果。
+     * <p>
+     * 多存储卷扫描器不支持分页扫描与分批传递扫描结果，调用 {@link #pageSize(int)}（pageSize 大于 0 时）、
+     * {@link #batchSize(int)} 或 {@link #maxBatchLatency(int)} 方法会抛出 {@link UnsupportedOperationException}
+     * 异常。如果回调接口是 {@link OnStreamScanCallback}，则合并后的扫描结果会通过一次
+     * {@link OnStreamScanCallback#onItems(List, int)} 调用传递。
+     *
+     * @param <T> 媒体文件对应的实体类型
+     * @see MediaStoreHelper#scanAudioVolumes(Context, Decoder)
+     * @see MediaStoreHelper#scanVideoVolumes(Context, Decoder)
+     * @see MediaStoreHelper#scanImagesVolumes(Context, Decoder)
+     */
+    @RequiresApi(Build.VERSION_CODES.Q)
+    public static class MultiVolumeScanner<T> implements Scanner<T> {
+        private Context mContext;
+        private Decoder<T> mDecoder;
+        private VolumeUriFactory mUriFactory;
+        private Handler mMainHandler;
+
+        private String[] mProjection;
+        private String mSelection;
+        private String[] mSelectionArgs;
+        private String mSortOrder;
+        private int mThreshold;
+        private Executor mScanExecutor;
+        private Comparator<? super T> mComparator;
+        private int mDecodeParallelism = 1;
+        private OnScanMetricsListener mMetricsListener;
+
+        // 当前（或最近一次）扫描，只会在主线程中访问
+        private Session mSession;
+
+        MultiVolumeScanner(Context context, Decoder<T> decoder, VolumeUriFactory uriFactory) {
+            mContext = context.getApplicationContext();
+            mDecoder = decoder;
+            mUriFactory = uriFactory;
+            mMainHandler = new Handler(Looper.getMainLooper());
+            mThreshold = MIN_UPDATE_THRESHOLD;
+        }
+
+        /**
+         * 设置用于合并各存储卷扫描结果的比较器，该比较器的顺序必须与 sortOrder 一致。
+         *
+         * @param comparator 比较器，为 null 时按存储卷的顺序直接拼接各存储卷的扫描结果
+         */
+        public MultiVolumeScanner<T> comparator(@Nullable Comparator<? super T> comparator) {
+            mComparator = comparator;
+            return this;
+        }
+
+        @Override
+        public Scanner<T> projection(String[] projection) {
+            mProjection = projection;
+            return this;
+        }
+
+        @Override
+        public Scanner<T> selection(String selection) {
+            mSelection = selection;
+            return this;
+        }
+
+        @Override
+        public Scanner<T> selectionArgs(String[] args) {
+            mSelectionArgs = args;
+            return this;
+        }
+
+        @Override
+        public Scanner<T> sortOrder(String sortOrder) {
+            mSortOrder = sortOrder;
+            return this;
+        }
+
+        @Override
+        public Scanner<T> updateThreshold(int threshold) {
+            mThreshold = Math.max(threshold, MIN_UPDATE_THRESHOLD);
+            return this;
+        }
+
+        /**
+         * 多存储卷扫描器不支持分页扫描。
+         *
+         * @throws UnsupportedOperationException 如果 pageSize 大于 0
+         */
+        @Override
+        public Scanner<T> pageSize(int pageSize) {
+            if (pageSize > 0) {
+                throw new UnsupportedOperationException("MultiVolumeScanner not support paged scan.");
+            }
+            return this;
+        }
+
+        /**
+         * 多存储卷扫描器会在所有存储卷都扫描完成后一次性传递合并后的扫描结果，不支持分批传递扫描结果。
+         *
+         * @throws UnsupportedOperationException 总是抛出该异常
+         */
+        @Override
+        public Scanner<T> batchSize(int batchSize) {
+            throw new UnsupportedOperationException("MultiVolumeScanner not support batched delivery.");
+        }
+
+        /**
+         * 多存储卷扫描器会在所有存储卷都扫描完成后一次性传递合并后的扫描结果，不支持分批传递扫描结果。
+         *
+         * @throws UnsupportedOperationException 总是抛出该异常
+         */
+        @Override
+        public Scanner<T> maxBatchLatency(int latency) {
+            throw new UnsupportedOperationException("MultiVolumeScanner not support batched delivery.");
+        }
+
+        @Override
+        public Scanner<T> executor(@Nullable Executor executor) {
+            mScanExecutor = executor;
+            return this;
+        }
+
+        @Override
+        public Scanner<T> decodeParallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be greater than 0.");
+            }
+
+            mDecodeParallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * 设置性能指标监听器。每个存储卷都会被单独扫描，因此每个存储卷扫描完成时都会调用一次监听器。
+         */
+        @Override
+        public Scanner<T> metricsListener(@Nullable OnScanMetricsListener listener) {
+            mMetricsListener = listener;
+            return this;
+        }
+
+        /**
+         * 取消扫描。该方法必须在主线程中调用。扫描被取消后，可以再次调用 {@link #scan(OnScanCallback)} 方法
+         * 开始新的扫描。
+         */
+        @Override
+        public void cancel() {
+            if (mSession == null) {
+                return;
+            }
+
+            mSession.mCancelled = true;
+            for (Scanner<T> scanner : mSession.mScanners) {
+                scanner.cancel();
+            }
+        }
+
+        /**
+         * 开始扫描。该方法必须在主线程中调用。
+         * <p>
+         * 上一次扫描结束（或被取消）后，可以再次调用该方法开始新的扫描。如果某个存储卷的扫描失败，那么本次扫描
+         * 不会调用回调接口的 onFinished 方法，其他存储卷的扫描都结束后，同样可以再次调用该方法开始新的扫描。
+         *
+         * @param callback 回调接口，不能为 null
+         * @throws IllegalStateException      如果扫描器正在扫描
+         * @throws RejectedExecutionException 如果 Executor 拒绝执行扫描任务
+         */
+        @Override
+        public void scan(@NonNull final OnScanCallback<T> callback) {
+            ObjectUtil.requireNonNull(callback);
+
+            if (isRunning()) {
+                throw new IllegalStateException("scanner is running.");
+            }
+
+            // 上一次扫描可能因为某个存储卷的扫描失败而没有结束，取消它，避免其回调接口再被调用
+            if (mSession != null && !mSession.mFinished) {
+                cancel();
+            }
+
+            List<String> volumeNames = getVolumeNames();
+
+            int count = volumeNames.size();
+            final Session session = new Session(count);
+            mSession = session;
+
+            if (count == 0) {
+                // 与其他扫描器一样，通过主线程的 Handler 调用回调接口，而不是在 scan 方法中同步调用
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (session.mCancelled) {
+                            return;
+                        }
+
+                        callback.onStartScan();
+                        notifyFinished(session, callback);
+                    }
+                });
+                return;
+            }
+
+            StringPool stringPool = new StringPool();
+            for (int i = 0; i < count; i++) {
+                session.mScanners.add(createVolumeScanner(volumeNames.get(i), stringPool));
+            }
+
+            try {
+                for (int i = 0; i < count; i++) {
+                    session.mScanners.get(i).scan(new VolumeCallback(session, i, callback));
+                }
+            } catch (RuntimeException e) {
+                // 回滚本次扫描：取消已开始的存储卷扫描，这样之后仍然可以再次调用 scan 方法
+                cancel();
+                throw e;
+            }
+        }
+
+        /**
+         * 依次同步扫描每一个存储卷，然后合并扫描结果。
+         */
+        @WorkerThread
+        @NonNull
+        @Override
+        public List<T> scanBlocking() {
+            List<String> volumeNames = getVolumeNames();
+            List<List<T>> results = new ArrayList<>(volumeNames.size());
+            StringPool stringPool = new StringPool();
+            for (String volumeName : volumeNames) {
+                results.add(createVolumeScanner(volumeName, stringPool).scanBlocking());
+            }
+
+            return merge(results, mComparator);
+        }
+
+        /**
+         * 同时查询所有存储卷，并在迭代时按需归并各存储卷的扫描结果。
+         */
+        @WorkerThread
+        @NonNull
+        @Override
+        public ScanIterator<T> iterate() {
+            List<String> volumeNames = getVolumeNames();
+            List<ScanIterator<T>> sources = new ArrayList<>(volumeNames.size());
+            StringPool stringPool = new StringPool();
+            try {
+                for (String volumeName : volumeNames) {
+                    sources.add(createVolumeScanner(volumeName, stringPool).iterate());
+                }
+            } catch (RuntimeException e) {
+                for (ScanIterator<T> source : sources) {
+                    source.close();
+                }
+                throw e;
+            }
+
+            return new MergingScanIterator<>(sources, mComparator);
+        }
+
+        private List<String> getVolumeNames() {
+            List<String> volumeNames = new ArrayList<>(MediaStore.getExternalVolumeNames(mContext));
+            Collections.sort(volumeNames);     // 保证各存储卷的顺序是稳定的
+            return volumeNames;
+        }
+
+        // 同一次扫描的所有存储卷共享同一个字符串池
+        private BaseScanner<T> createVolumeScanner(String volumeName, StringPool stringPool) {
+            BaseScanner<T> scanner = new VolumeScanner<>(mUriFactory.getContentUri(volumeName),
+                    mContext.getContentResolver(),
+                    mDecoder);
+            scanner.stringPool(stringPool)
+                    .projection(mProjection)
+                    .selection(mSelection)
+                    .selectionArgs(mSelectionArgs)
+                    .sortOrder(mSortOrder)
+                    .updateThreshold(mThreshold)
+                    .executor(mScanExecutor)
+                    .decodeParallelism(mDecodeParallelism)
+                    .metricsListener(mMetricsListener);
+            return scanner;
+        }
+
+        private boolean isRunning() {
+            Session session = mSession;
+            if (session == null || session.mCancelled || session.mFinished) {
+                return false;
+            }
+
+            // 没有存储卷时，onFinished 方法还未被调用
+            if (session.mScanners.isEmpty()) {
+                return true;
+            }
+
+            // 扫描失败的存储卷的扫描器会结束，但不会调用 onFinished 方法，因此本次扫描永远不会完成。此时只要所有
+            // 存储卷的扫描器都已结束，就认为本次扫描已经结束
+            for (BaseScanner<T> scanner : session.mScanners) {
+                if (scanner.isRunning()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void onVolumeFinished(Session session, int index, List<T> items, OnScanCallback<T> callback) {
+            session.mResults.set(index, items);
+            session.mFinishedCount++;
+
+            if (session.mFinishedCount == session.mScanners.size()) {
+                notifyFinished(session, callback);
+            }
+        }
+
+        private void notifyFinished(final Session session, final OnScanCallback<T> callback) {
+            session.mFinished = true;
+
+            // 被取消的扫描不会调用回调接口的 onFinished 方法
+            if (session.mCancelled) {
+                return;
+            }
+
+            final List<List<T>> results = session.mResults;
+            final Comparator<? super T> comparator = mComparator;
+
+            // 在 Executor 中归并各存储卷的扫描结果，避免阻塞主线程
+            try {
+                getExecutor(mScanExecutor).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        final List<T> items = merge(results, comparator);
+                        mMainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                deliverResult(session, callback, items);
+                            }
+                        });
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 该方法在主线程中调用，不能抛出异常，因此直接在主线程中归并
+                deliverResult(session, callback, merge(results, comparator));
+            }
+        }
+
+        private void deliverResult(Session session, OnScanCallback<T> callback, List<T> items) {
+            if (session.mCancelled) {
+                return;
+            }
+
+            if (callback instanceof OnStreamScanCallback) {
+                ((OnStreamScanCallback<T>) callback).onItems(items, 0);
+                callback.onFinished(Collections.<T>emptyList());
+                return;
+            }
+
+            callback.onFinished(items);
+        }
+
+        @VisibleForTesting
+        static <T> List<T> merge(List<List<T>> lists, @Nullable Comparator<? super T> comparator) {
+            int size = 0;
+            for (List<T> list : lists) {
+                size += list == null ? 0 : list.size();
+            }
+
+            List<T> result = new ArrayList<>(size);
+            if (comparator == null) {
+                for (List<T> list : lists) {
+                    if (list != null) {
+                        result.addAll(list);
+                    }
+                }
+                return result;
+            }
+
+            // k 路归并：堆中保存每个列表的当前位置
+            final List<List<T>> sources = lists;
+            final Comparator<? super T> c = comparator;
+            PriorityQueue<int[]> heap = new PriorityQueue<>(Math.max(lists.size(), 1), new Comparator<int[]>() {
+                @Override
+                public int compare(int[] a, int[] b) {
+                    int result = c.compare(sources.get(a[0]).get(a[1]), sources.get(b[0]).get(b[1]));
+                    // 相等时按存储卷的顺序排列，保证归并是稳定的
+                    return result != 0 ? result : a[0] - b[0];
+                }
+            });
+
+            for (int i = 0; i < lists.size(); i++) {
+                List<T> list = lists.get(i);
+                if (list != null && !list.isEmpty()) {
+                    heap.add(new int[]{i, 0});
+                }
+            }
+
+            while (!heap.isEmpty()) {
+                int[] head = heap.poll();
+                List<T> list = lists.get(head[0]);
+                result.add(list.get(head[1]));
+
+                head[1]++;
+                if (head[1] < list.size()) {
+                    heap.add(head);
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * 按需归并多个迭代器：comparator 为 null 时依次遍历各迭代器，否则进行 k 路归并。
+         */
+        private static final class MergingScanIterator<T> implements ScanIterator<T> {
+            private final List<ScanIterator<T>> mSources;
+            private final PriorityQueue<Head<T>> mHeap;
+            private int mCurrent;
+
+            MergingScanIterator(List<ScanIterator<T>> sources, @Nullable final Comparator<? super T> comparator) {
+                mSources = sources;
+
+                if (comparator == null) {
+                    mHeap = null;
+                    return;
+                }
+
+                mHeap = new PriorityQueue<>(Math.max(sources.size(), 1), new Comparator<Head<T>>() {
+                    @Override
+                    public int compare(Head<T> a, Head<T> b) {
+                        int result = comparator.compare(a.item, b.item);
+                        // 相等时按存储卷的顺序排列，保证归并是稳定的
+                        return result != 0 ? result : a.index - b.index;
+                    }
+                });
+
+                for (int i = 0; i < sources.size(); i++) {
+                    ScanIterator<T> source = sources.get(i);
+                    if (source.hasNext()) {
+                        mHeap.add(new Head<>(i, source.next()));
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                if (mHeap != null) {
+                    return !mHeap.isEmpty();
+                }
+
+                while (mCurrent < mSources.size() && !mSources.get(mCurrent).hasNext()) {
+                    mCurrent++;
+                }
+                return mCurrent < mSources.size();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                if (mHeap == null) {
+                    return mSources.get(mCurrent).next();
+                }
+
+                Head<T> head = mHeap.poll();
+                T item = head.item;
+
+                ScanIterator<T> source = mSources.get(head.index);
+                if (source.hasNext()) {
+                    head.item = source.next();
+                    mHeap.add(head);
+                }
+
+                return item;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                for (ScanIterator<T> source : mSources) {
+                    source.close();
+                }
+
+                if (mHeap != null) {
+                    mHeap.clear();
+                }
+                mCurrent = mSources.size();
+            }
+
+            private static final class Head<T> {
+                final int index;
+                T item;
+
+                Head(int index, T item) {
+                    this.index = index;
+                    this.item = item;
+                }
+            }
+        }
+
+        /**
+         * 一次多存储卷扫描的状态。每次调用 scan 方法都会创建一个新的 Session 对象，因此上一次被取消的扫描的回调
+         * 不会影响新的扫描。
+         */
+        private class Session {
+            private final List<BaseScanner<T>> mScanners;
+            private final List<List<T>> mResults;
+            private final int[] mProgress;
+            private final int[] mMax;
+            private int mFinishedCount;
+            private boolean mStarted;
+            private boolean mFinished;
+            private boolean mCancelled;
+
+            Session(int volumeCount) {
+                mScanners = new ArrayList<>(volumeCount);
+                mResults = new ArrayList<>(Collections.<List<T>>nCopies(volumeCount, null));
+                mProgress = new int[volumeCount];
+                mMax = new int[volumeCount];
+            }
+        }
+
+        private class VolumeCallback implements OnScanCallback<T> {
+            private Session mSession;
+            private int mIndex;
+            private OnScanCallback<T> mCallback;
+
+            VolumeCallback(Session session, int index, OnScanCallback<T> callback) {
+                mSession = session;
+                mIndex = index;
+                mCallback = callback;
+            }
+
+            @Override
+            public void onStartScan() {
+                // 第一个开始扫描的存储卷负责调用 onStartScan，保证其只会被调用一次
+                if (mSession.mStarted || mSession.mCancelled) {
+                    return;
+                }
+
+                mSession.mStarted = true;
+                mCallback.onStartScan();
+            }
+
+            @Override
+            public void onUpdateProgress(int progress, int max, T item) {
+                int[] progresses = mSession.mProgress;
+                int[] maxes = mSession.mMax;
+                progresses[mIndex] = progress;
+                maxes[mIndex] = max;
+
+                int totalProgress = 0;
+                int totalMax = 0;
+                for (int i = 0; i < progresses.length; i++) {
+                    totalProgress += progresses[i];
+                    totalMax += maxes[i];
+                }
+
+                mCallback.onUpdateProgress(totalProgress, totalMax, item);
+            }
+
+            @Override
+            public void onFinished(List<T> items) {
+                onVolumeFinished(mSession, mIndex, items, mCallback);
+            }
+        }
+    }
+
+    private static class VolumeScanner<T> extends BaseScanner<T> {
+        public VolumeScanner(Uri uri, ContentResolver resolver, Decoder<T> decoder) {
+            super(uri, resolver, decoder);
         }
     }
 
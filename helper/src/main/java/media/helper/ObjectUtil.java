@@ -6,4 +6,12 @@ class ObjectUtil {
             throw new NullPointerException();
         return obj;
     }
+
+    public static boolean equals(Object a, Object b) {
+        return (a == b) || (a != null && a.equals(b));
+    }
+
+    public static int hashCode(Object obj) {
+        return obj == null ? 0 : obj.hashCode();
+    }
 }
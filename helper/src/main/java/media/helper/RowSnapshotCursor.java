@@ -0,0 +1,191 @@
+package media.helper;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+
+/**
+ * 保存了若干行数据副本的 Cursor，用于在扫描线程之外解码。
+ * <p>
+ * 扫描线程调用 {@link #copyRow(Cursor)} 方法将源 Cursor 当前行的数据复制到快照中，然后将快照交给其他线程调用
+ * {@link MediaStoreHelper.Decoder} 进行解码。数据按列的类型分别保存在 long[]、double[] 与 Object[] 中，
+ * 整数与浮点数不会被装箱。类型转换的规则与 SQLite 的 Cursor 保持一致。
+ */
+final class RowSnapshotCursor extends AbstractCursor {
+    private final String[] mColumnNames;
+    private final int mColumnCount;
+    private final int mCapacity;
+
+    private final int[] mTypes;
+    private final long[] mLongs;
+    private final double[] mDoubles;
+    private final Object[] mObjects;
+
+    private int mRowCount;
+
+    RowSnapshotCursor(String[] columnNames, int capacity) {
+        mColumnNames = columnNames;
+        mColumnCount = columnNames.length;
+        mCapacity = capacity;
+
+        int size = mColumnCount * capacity;
+        mTypes = new int[size];
+        mLongs = new long[size];
+        mDoubles = new double[size];
+        mObjects = new Object[size];
+    }
+
+    boolean isFull() {
+        return mRowCount >= mCapacity;
+    }
+
+    /**
+     * 复制源 Cursor 当前行的数据。
+     */
+    void copyRow(Cursor cursor) {
+        int base = mRowCount * mColumnCount;
+        for (int column = 0; column < mColumnCount; column++) {
+            int i = base + column;
+            int type = cursor.getType(column);
+            mTypes[i] = type;
+
+            switch (type) {
+                case FIELD_TYPE_INTEGER:
+                    mLongs[i] = cursor.getLong(column);
+                    break;
+                case FIELD_TYPE_FLOAT:
+                    mDoubles[i] = cursor.getDouble(column);
+                    break;
+                case FIELD_TYPE_STRING:
+                    mObjects[i] = cursor.getString(column);
+                    break;
+                case FIELD_TYPE_BLOB:
+                    mObjects[i] = cursor.getBlob(column);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        mRowCount++;
+    }
+
+    private int index(int column) {
+        return mPos * mColumnCount + column;
+    }
+
+    @Override
+    public int getCount() {
+        return mRowCount;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    @Override
+    public int getType(int column) {
+        return mTypes[index(column)];
+    }
+
+    @Override
+    public String getString(int column) {
+        int i = index(column);
+        switch (mTypes[i]) {
+            case FIELD_TYPE_INTEGER:
+                return Long.toString(mLongs[i]);
+            case FIELD_TYPE_FLOAT:
+                return Double.toString(mDoubles[i]);
+            case FIELD_TYPE_STRING:
+                return (String) mObjects[i];
+            case FIELD_TYPE_BLOB:
+                throw new IllegalStateException("Unable to convert BLOB to string");
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        int i = index(column);
+        switch (mTypes[i]) {
+            case FIELD_TYPE_BLOB:
+                return (byte[]) mObjects[i];
+            case FIELD_TYPE_NULL:
+                return null;
+            default:
+                throw new IllegalStateException("Unable to convert to BLOB");
+        }
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        int i = index(column);
+        switch (mTypes[i]) {
+            case FIELD_TYPE_INTEGER:
+                return mLongs[i];
+            case FIELD_TYPE_FLOAT:
+                return (long) mDoubles[i];
+            case FIELD_TYPE_STRING:
+                return parseLong((String) mObjects[i]);
+            case FIELD_TYPE_BLOB:
+                throw new IllegalStateException("Unable to convert BLOB to long");
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return (float) getDouble(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        int i = index(column);
+        switch (mTypes[i]) {
+            case FIELD_TYPE_INTEGER:
+                return mLongs[i];
+            case FIELD_TYPE_FLOAT:
+                return mDoubles[i];
+            case FIELD_TYPE_STRING:
+                return parseDouble((String) mObjects[i]);
+            case FIELD_TYPE_BLOB:
+                throw new IllegalStateException("Unable to convert BLOB to double");
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return mTypes[index(column)] == FIELD_TYPE_NULL;
+    }
+
+    // 与 SQLite 一致：无法转换的字符串被当作 0
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return (long) parseDouble(value);
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
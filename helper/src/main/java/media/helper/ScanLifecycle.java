@@ -0,0 +1,119 @@
+package media.helper;
+
+import android.os.Handler;
+
+import androidx.core.os.CancellationSignal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单次查询扫描器（例如 {@link MediaStoreHelper.AudioTableScanner} 与 {@link MediaStoreHelper.CombinedScanner}）
+ * 共享的扫描生命周期。
+ * <p>
+ * 与 {@code BaseScanner} 的 ScanTask 一样，每次扫描都对应一个新的 {@link Run} 对象，扫描的状态只通过 CAS 修改：
+ * RUNNING → FINISHED 或 RUNNING → CANCELLED。扫描被取消后即可开始新的扫描，即使被取消的扫描还未完全停止；
+ * 被取消的扫描不会调用回调接口的 onFinished 方法。
+ */
+final class ScanLifecycle {
+    // 当前（或最近一次）扫描
+    private Run mCurrent;
+
+    /**
+     * 开始一次新的扫描。
+     *
+     * @throws IllegalStateException 如果当前扫描还未结束
+     */
+    synchronized Run begin() throws IllegalStateException {
+        if (mCurrent != null && mCurrent.isActive()) {
+            throw new IllegalStateException("scanner is running.");
+        }
+
+        mCurrent = new Run();
+        return mCurrent;
+    }
+
+    /**
+     * 取消当前正在进行的扫描。如果 ContentProvider 端的查询仍在执行，该查询会被中止。
+     */
+    void cancel() {
+        Run run;
+        synchronized (this) {
+            run = mCurrent;
+        }
+
+        if (run != null) {
+            run.cancel();
+        }
+    }
+
+    /**
+     * 使用 executor 执行扫描任务。如果 executor 拒绝执行该任务，或者扫描任务抛出了异常，则会取消 run，这样之后
+     * 仍然可以开始新的扫描。
+     *
+     * @throws RejectedExecutionException 如果 executor 拒绝执行扫描任务
+     */
+    static void execute(Executor executor, final Run run, final Runnable task) throws RejectedExecutionException {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        run.cancel();
+                        throw e;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            run.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * 一次扫描。
+     */
+    static final class Run {
+        private static final int STATE_RUNNING = 0;
+        private static final int STATE_FINISHED = 1;
+        private static final int STATE_CANCELLED = 2;
+
+        private final AtomicInteger mState = new AtomicInteger(STATE_RUNNING);
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+
+        boolean isActive() {
+            return mState.get() == STATE_RUNNING;
+        }
+
+        boolean isCancelled() {
+            return mState.get() == STATE_CANCELLED;
+        }
+
+        CancellationSignal getCancellationSignal() {
+            return mCancellationSignal;
+        }
+
+        void cancel() {
+            if (mState.compareAndSet(STATE_RUNNING, STATE_CANCELLED)) {
+                mCancellationSignal.cancel();
+            }
+        }
+
+        /**
+         * 在 handler 的线程中结束扫描，然后执行 onFinished。如果在此之前扫描已被取消，则不会执行 onFinished。
+         */
+        void postFinished(Handler handler, final Runnable onFinished) {
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (mState.compareAndSet(STATE_RUNNING, STATE_FINISHED)) {
+                        onFinished.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package media.helper;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.CursorWindow;
+import android.database.CursorWrapper;
+
+/**
+ * 一次扫描的性能指标。
+ * <p>
+ * 调用 {@link MediaStoreHelper.Scanner#metricsListener(MediaStoreHelper.OnScanMetricsListener)} 方法设置监听器后，
+ * 扫描器会在扫描完成时通过监听器报告本次扫描的性能指标。所有时间均以纳秒为单位。
+ * <p>
+ * 单次解码耗时被记录在一个以 2 为底的指数直方图中：第 0 个桶记录耗时小于 1 微秒的行，第 i 个桶（i &gt; 0）记录
+ * 耗时位于 [2<sup>i-1</sup>, 2<sup>i</sup>) 微秒之间的行，最后一个桶记录耗时更长的所有行。
+ */
+public final class ScanMetrics {
+    /**
+     * 解码耗时直方图的桶的数量。
+     */
+    public static final int DECODE_HISTOGRAM_BUCKETS = 16;
+
+    private final long mTotalTime;
+    private final int mQueryCount;
+    private final long mQueryTime;
+    private final long mTimeToFirstRow;
+    private final int mRowCount;
+    private final long mDecodeTime;
+    private final long[] mDecodeHistogram;
+    private final int mCursorWindowFills;
+    private final int mHandlerPostCount;
+    private final long mHandlerPostTime;
+
+    private ScanMetrics(Recorder recorder, long totalTime) {
+        mTotalTime = totalTime;
+        mQueryCount = recorder.mQueryCount;
+        mQueryTime = recorder.mQueryTime;
+        mTimeToFirstRow = recorder.mTimeToFirstRow;
+        mRowCount = recorder.mRowCount;
+        mDecodeTime = recorder.mDecodeTime;
+        mDecodeHistogram = recorder.mDecodeHistogram.clone();
+        mCursorWindowFills = recorder.mCursorWindowFills;
+        mHandlerPostCount = recorder.mHandlerPostCount;
+        mHandlerPostTime = recorder.mHandlerPostTime;
+    }
+
+    /**
+     * 从扫描任务开始执行到扫描完成的总耗时。
+     */
+    public long getTotalTimeNanos() {
+        return mTotalTime;
+    }
+
+    /**
+     * 执行 ContentResolver.query 方法的次数。分页扫描时每一页都会执行一次查询。
+     */
+    public int getQueryCount() {
+        return mQueryCount;
+    }
+
+    /**
+     * 所有 ContentResolver.query 方法调用的总耗时。
+     */
+    public long getQueryTimeNanos() {
+        return mQueryTime;
+    }
+
+    /**
+     * 从扫描任务开始执行到第一行数据可用（Cursor 的 moveToFirst 方法返回）的耗时。没有扫描到任何数据时返回 -1。
+     */
+    public long getTimeToFirstRowNanos() {
+        return mTimeToFirstRow;
+    }
+
+    /**
+     * 读取的总行数。
+     */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    /**
+     * 每秒读取的行数。
+     */
+    public double getRowsPerSecond() {
+        return mTotalTime <= 0 ? 0 : mRowCount * 1e9 / mTotalTime;
+    }
+
+    /**
+     * 所有行的解码总耗时。并行解码时为各解码线程的耗时之和。
+     */
+    public long getDecodeTimeNanos() {
+        return mDecodeTime;
+    }
+
+    /**
+     * 单次解码耗时的直方图，数组的长度为 {@link #DECODE_HISTOGRAM_BUCKETS}。
+     *
+     * @see #getBucketUpperBoundMicros(int)
+     */
+    public long[] getDecodeHistogram() {
+        return mDecodeHistogram.clone();
+    }
+
+    /**
+     * 返回解码耗时直方图中第 bucket 个桶的上界（不包含），单位为微秒。最后一个桶没有上界，返回 Long.MAX_VALUE。
+     */
+    public static long getBucketUpperBoundMicros(int bucket) {
+        if (bucket < 0 || bucket >= DECODE_HISTOGRAM_BUCKETS) {
+            throw new IndexOutOfBoundsException("bucket: " + bucket);
+        }
+
+        return bucket == DECODE_HISTOGRAM_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * CursorWindow 被填充的次数（包括第一次填充）。
+     * <p>
+     * 只有底层 Cursor 是 {@link AbstractWindowedCursor}（例如跨进程查询返回的 Cursor）时才能统计，否则为 0。
+     * 对于跨进程查询，每一次填充都意味着一次 IPC 调用。
+     */
+    public int getCursorWindowFills() {
+        return mCursorWindowFills;
+    }
+
+    /**
+     * 向主线程 Handler 发送消息的次数。
+     */
+    public int getHandlerPostCount() {
+        return mHandlerPostCount;
+    }
+
+    /**
+     * 向主线程 Handler 发送消息的总耗时（Handler.post 方法本身的耗时，不包括消息的处理时间）。
+     */
+    public long getHandlerPostTimeNanos() {
+        return mHandlerPostTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanMetrics{" +
+                "totalTime=" + mTotalTime +
+                ", queryCount=" + mQueryCount +
+                ", queryTime=" + mQueryTime +
+                ", timeToFirstRow=" + mTimeToFirstRow +
+                ", rowCount=" + mRowCount +
+                ", decodeTime=" + mDecodeTime +
+                ", cursorWindowFills=" + mCursorWindowFills +
+                ", handlerPostCount=" + mHandlerPostCount +
+                ", handlerPostTime=" + mHandlerPostTime +
+                '}';
+    }
+
+    /**
+     * 在扫描过程中记录性能指标。
+     * <p>
+     * 除 {@link #mergeDecodeTimes(long, long[])} 方法外，其他方法都只能在扫描线程中调用。
+     */
+    static final class Recorder {
+        private long mStartTime;
+        private int mQueryCount;
+        private long mQueryTime;
+        private long mTimeToFirstRow = -1;
+        private int mRowCount;
+        private long mDecodeTime;
+        private final long[] mDecodeHistogram = new long[DECODE_HISTOGRAM_BUCKETS];
+        private int mCursorWindowFills;
+        private int mHandlerPostCount;
+        private long mHandlerPostTime;
+
+        // 用于检测 CursorWindow 的填充
+        private Cursor mCursor;
+        private AbstractWindowedCursor mWindowedCursor;
+        private CursorWindow mWindow;
+        private int mWindowStart;
+
+        void start() {
+            mStartTime = System.nanoTime();
+        }
+
+        void recordQuery(long startTime) {
+            mQueryCount++;
+            mQueryTime += System.nanoTime() - startTime;
+        }
+
+        void recordFirstRow() {
+            if (mTimeToFirstRow < 0) {
+                mTimeToFirstRow = System.nanoTime() - mStartTime;
+            }
+        }
+
+        /**
+         * 记录读取了 Cursor 的当前行。
+         */
+        void recordRow(Cursor cursor) {
+            mRowCount++;
+
+            if (cursor != mCursor) {
+                mCursor = cursor;
+                mWindowedCursor = unwrap(cursor);
+                mWindow = null;
+            }
+
+            if (mWindowedCursor == null) {
+                return;
+            }
+
+            CursorWindow window = mWindowedCursor.getWindow();
+            if (window == null) {
+                return;
+            }
+
+            int start = window.getStartPosition();
+            if (window != mWindow || start != mWindowStart) {
+                mCursorWindowFills++;
+                mWindow = window;
+                mWindowStart = start;
+            }
+        }
+
+        void recordDecode(long nanos) {
+            mDecodeTime += nanos;
+            mDecodeHistogram[bucketOf(nanos)]++;
+        }
+
+        /**
+         * 合并解码线程记录的解码耗时。该方法是线程安全的。
+         */
+        synchronized void mergeDecodeTimes(long decodeTime, long[] histogram) {
+            mDecodeTime += decodeTime;
+            for (int i = 0; i < histogram.length; i++) {
+                mDecodeHistogram[i] += histogram[i];
+            }
+        }
+
+        void recordPost(long startTime) {
+            mHandlerPostCount++;
+            mHandlerPostTime += System.nanoTime() - startTime;
+        }
+
+        /**
+         * 结束记录。解码线程的所有记录都必须在调用该方法之前合并完成。
+         */
+        synchronized ScanMetrics build() {
+            mCursor = null;
+            mWindowedCursor = null;
+            mWindow = null;
+
+            // 扫描任务没有开始执行（例如被 Executor 拒绝）时，总耗时为 0
+            long totalTime = mStartTime == 0 ? 0 : System.nanoTime() - mStartTime;
+            return new ScanMetrics(this, totalTime);
+        }
+
+        static int bucketOf(long nanos) {
+            long micros = nanos / 1000;
+            int bucket = 64 - Long.numberOfLeadingZeros(micros);
+            return Math.min(bucket, DECODE_HISTOGRAM_BUCKETS - 1);
+        }
+
+        private static AbstractWindowedCursor unwrap(Cursor cursor) {
+            while (cursor instanceof CursorWrapper) {
+                cursor = ((CursorWrapper) cursor).getWrappedCursor();
+            }
+
+            return cursor instanceof AbstractWindowedCursor ? (AbstractWindowedCursor) cursor : null;
+        }
+    }
+}
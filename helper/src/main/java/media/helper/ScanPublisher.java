@@ -0,0 +1,267 @@
+package media.helper;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.core.os.CancellationSignal;
+import androidx.core.os.OperationCanceledException;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 将 {@link MediaStoreHelper.Scanner} 适配为 Reactive Streams 的 {@link Publisher}，支持背压。
+ * <p>
+ * 与 {@link MediaStoreHelper.OnScanCallback} 不同，ScanPublisher 只会在订阅者调用 {@link Subscription#request(long)}
+ * 方法请求数据时才从 Cursor 中读取并解码相应数量的行，因此消费速度较慢的订阅者不会导致扫描结果在内存中堆积。
+ * <p>
+ * 每个订阅者都会执行一次独立的查询。查询使用扫描器当前的 projection、selection、selectionArgs 与 sortOrder，
+ * 分页、批量与进度相关的配置会被忽略。所有信号都会在扫描器的 Executor 中发送，而不是在主线程中发送。
+ * <p>
+ * <b>注意！该类依赖 {@code org.reactivestreams:reactive-streams}，使用该类时需要自行添加该依赖。</b>
+ * <p>
+ * 例：
+ * <pre>
+ * Publisher&lt;Music&gt; publisher = ScanPublisher.from(MediaStoreHelper.scanAudio(resolver, decoder));
+ * Flowable.fromPublisher(publisher)
+ *         .observeOn(AndroidSchedulers.mainThread())
+ *         .subscribe(...);
+ * </pre>
+ *
+ * @param <T> 媒体文件对应的实体类型
+ */
+public final class ScanPublisher<T> implements Publisher<T> {
+    private final MediaStoreHelper.BaseScanner<T> mScanner;
+
+    private ScanPublisher(MediaStoreHelper.BaseScanner<T> scanner) {
+        mScanner = scanner;
+    }
+
+    /**
+     * 创建一个 ScanPublisher 对象。
+     *
+     * @param scanner 扫描器，不能为 null，必须是 {@link MediaStoreHelper.BaseScanner} 的子类，例如
+     *                {@link MediaStoreHelper#scanAudio(android.content.ContentResolver, MediaStoreHelper.Decoder)}
+     *                方法返回的扫描器
+     * @throws IllegalArgumentException 如果扫描器不是 {@link MediaStoreHelper.BaseScanner} 的子类
+     */
+    public static <T> ScanPublisher<T> from(@NonNull MediaStoreHelper.Scanner<T> scanner) {
+        ObjectUtil.requireNonNull(scanner);
+
+        if (!(scanner instanceof MediaStoreHelper.BaseScanner)) {
+            throw new IllegalArgumentException("scanner must be a BaseScanner.");
+        }
+
+        return new ScanPublisher<>((MediaStoreHelper.BaseScanner<T>) scanner);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        ObjectUtil.requireNonNull(subscriber);
+        new ScanSubscription<>(mScanner, subscriber).start();
+    }
+
+    /**
+     * 一次订阅。
+     * <p>
+     * 所有信号都在 {@link #drain()} 中发送，mWip 保证了同一时刻最多只有一个线程在执行 drain，因此 Cursor 与
+     * 以下非 volatile 字段只会被串行地访问。
+     */
+    private static final class ScanSubscription<T> implements Subscription, Runnable {
+        private final MediaStoreHelper.BaseScanner<T> mScanner;
+        private final Subscriber<? super T> mSubscriber;
+
+        private final AtomicLong mRequested = new AtomicLong();
+        // 初始值为 1：在 onSubscribe 返回之前调用的 request 方法不会调度新的 drain
+        private final AtomicInteger mWip = new AtomicInteger(1);
+        private final CancellationSignal mCancellationSignal = new CancellationSignal();
+
+        private volatile boolean mCancelled;
+        private volatile Throwable mPendingError;
+
+        private Cursor mCursor;
+        private MediaStoreHelper.Columns mColumns;
+        private boolean mDone;
+
+        ScanSubscription(MediaStoreHelper.BaseScanner<T> scanner, Subscriber<? super T> subscriber) {
+            mScanner = scanner;
+            mSubscriber = subscriber;
+        }
+
+        void start() {
+            try {
+                mScanner.getScanExecutor().execute(this);
+            } catch (RejectedExecutionException e) {
+                mDone = true;
+                mSubscriber.onSubscribe(this);
+                mSubscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            mSubscriber.onSubscribe(this);
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                mPendingError = new IllegalArgumentException("request count must be positive, but was " + n);
+            } else {
+                addRequested(n);
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled = true;
+            mCancellationSignal.cancel();
+
+            // 由 drain 负责关闭 Cursor
+            schedule();
+        }
+
+        private void addRequested(long n) {
+            while (true) {
+                long current = mRequested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+
+                long next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+
+                if (mRequested.compareAndSet(current, next)) {
+                    return;
+                }
+            }
+        }
+
+        private void schedule() {
+            if (mWip.getAndIncrement() != 0) {
+                return;
+            }
+
+            try {
+                mScanner.getScanExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // 当前线程已持有 mWip，只发送错误信号，不会在当前线程中执行查询
+                mPendingError = e;
+                drain();
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                emit();
+                missed = mWip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            if (mDone) {
+                return;
+            }
+
+            if (mCancelled) {
+                terminate();
+                return;
+            }
+
+            Throwable error = mPendingError;
+            if (error != null) {
+                terminate();
+                mSubscriber.onError(error);
+                return;
+            }
+
+            long requested = mRequested.get();
+            if (requested == 0) {
+                return;
+            }
+
+            try {
+                if (mCursor == null && !openCursor()) {
+                    terminate();
+                    mSubscriber.onComplete();
+                    return;
+                }
+
+                long emitted = 0;
+                while (emitted != requested) {
+                    if (mCancelled) {
+                        terminate();
+                        return;
+                    }
+
+                    T item = mScanner.getDecoder().decode(mCursor, mColumns);
+                    if (item == null) {
+                        throw new NullPointerException("Decoder returned null.");
+                    }
+
+                    mSubscriber.onNext(item);
+                    emitted++;
+
+                    if (!mCursor.moveToNext()) {
+                        terminate();
+                        mSubscriber.onComplete();
+                        return;
+                    }
+                }
+
+                if (requested != Long.MAX_VALUE) {
+                    mRequested.addAndGet(-emitted);
+                }
+            } catch (OperationCanceledException e) {
+                terminate();
+            } catch (RuntimeException e) {
+                terminate();
+                if (!mCancelled) {
+                    mSubscriber.onError(e);
+                }
+            }
+        }
+
+        // 返回 false 表示没有任何数据
+        private boolean openCursor() {
+            Cursor cursor = mScanner.query(mCancellationSignal);
+            if (cursor == null) {
+                return false;
+            }
+
+            mCursor = cursor;
+            if (!cursor.moveToFirst()) {
+                return false;
+            }
+
+            mColumns = new MediaStoreHelper.Columns(cursor);
+            return true;
+        }
+
+        private void terminate() {
+            mDone = true;
+            mColumns = null;
+
+            if (mCursor != null) {
+                mCursor.close();
+                mCursor = null;
+            }
+        }
+    }
+}
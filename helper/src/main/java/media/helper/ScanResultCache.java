@@ -0,0 +1,154 @@
+package media.helper;
+
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 扫描结果的内存缓存，用于 {@link MediaStoreHelper#enableResultCache(android.content.Context, long)}。
+ * <p>
+ * 缓存以 {@link MediaStoreHelper.QueryKey} 为键，按估算的字节数限制缓存的总大小，超出时淘汰最久未使用的扫描结果。
+ * 第一次查询某个 Uri 时会为其注册一个 ContentObserver，Uri（及其子 Uri）的数据发生变化时，该 Uri 的所有扫描结果
+ * 都会失效。
+ * <p>
+ * 每个 Uri 都有一个版本号，每次失效时加 1。扫描开始前需要先调用 {@link #getVersion(Uri)} 方法读取版本号，
+ * 扫描完成后再将版本号传给 {@link #put(MediaStoreHelper.QueryKey, long, List, long)} 方法，这样在扫描期间
+ * 发生变化的扫描结果不会被缓存。该类是线程安全的。
+ */
+final class ScanResultCache {
+    private final ContentResolver mResolver;
+    private final long mMaxSize;
+
+    // accessOrder 为 true，迭代顺序即从最久未使用到最近使用
+    private final LinkedHashMap<MediaStoreHelper.QueryKey, Entry> mEntries = new LinkedHashMap<>(16, 0.75F, true);
+    private final Map<Uri, Long> mVersions = new HashMap<>();
+    private final Map<Uri, ContentObserver> mObservers = new HashMap<>();
+    private long mSize;
+    private boolean mReleased;
+
+    ScanResultCache(ContentResolver resolver, long maxSize) {
+        mResolver = resolver;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * 返回缓存的扫描结果，该列表不可修改。
+     *
+     * @return 缓存的扫描结果，如果不存在，则返回 null
+     */
+    synchronized List<?> get(MediaStoreHelper.QueryKey key) {
+        Entry entry = mEntries.get(key);
+        return entry == null ? null : entry.items;
+    }
+
+    /**
+     * 返回 uri 当前的版本号。如果还没有监听该 uri，则会先注册 ContentObserver。
+     */
+    synchronized long getVersion(final Uri uri) {
+        if (!mReleased && !mObservers.containsKey(uri)) {
+            ContentObserver observer = new ContentObserver(null) {
+                @Override
+                public void onChange(boolean selfChange) {
+                    invalidate(uri);
+                }
+            };
+
+            mResolver.registerContentObserver(uri, true, observer);
+            mObservers.put(uri, observer);
+        }
+
+        Long version = mVersions.get(uri);
+        if (version == null) {
+            // 保存初始版本号，这样 clear() 方法也会使在其之前开始的扫描的结果失效
+            version = 0L;
+            mVersions.put(uri, version);
+        }
+        return version;
+    }
+
+    /**
+     * 缓存扫描结果。如果 uri 的版本号已经发生变化，或者扫描结果的大小超过了缓存的最大容量，则不会缓存。
+     *
+     * @param version 扫描开始前调用 {@link #getVersion(Uri)} 方法得到的版本号
+     * @param size    扫描结果的估算大小（字节）
+     */
+    synchronized void put(MediaStoreHelper.QueryKey key, long version, List<?> items, long size) {
+        if (mReleased || version != getVersion(key.getUri()) || size > mMaxSize) {
+            return;
+        }
+
+        Entry old = mEntries.put(key, new Entry(Collections.unmodifiableList(new ArrayList<>(items)), size));
+        if (old != null) {
+            mSize -= old.size;
+        }
+        mSize += size;
+
+        trimToSize();
+    }
+
+    /**
+     * 使 uri 的所有扫描结果失效。
+     */
+    synchronized void invalidate(Uri uri) {
+        mVersions.put(uri, getVersion(uri) + 1);
+
+        Iterator<Map.Entry<MediaStoreHelper.QueryKey, Entry>> iterator = mEntries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<MediaStoreHelper.QueryKey, Entry> entry = iterator.next();
+            if (uri.equals(entry.getKey().getUri())) {
+                mSize -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        for (Uri uri : new ArrayList<>(mVersions.keySet())) {
+            mVersions.put(uri, mVersions.get(uri) + 1);
+        }
+
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * 清空缓存并注销所有 ContentObserver。释放后的缓存不会再缓存任何扫描结果。
+     */
+    synchronized void release() {
+        mReleased = true;
+        for (ContentObserver observer : mObservers.values()) {
+            mResolver.unregisterContentObserver(observer);
+        }
+
+        mObservers.clear();
+        mVersions.clear();
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    private void trimToSize() {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            mSize -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    private static final class Entry {
+        final List<?> items;
+        final long size;
+
+        Entry(List<?> items, long size) {
+            this.items = items;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package media.helper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 扫描结果的磁盘快照，用于 {@link MediaStoreHelper.CachedScanner}。
+ * <p>
+ * 快照文件的格式：
+ * <pre>
+ * int     MAGIC
+ * int     FORMAT_VERSION
+ * UTF     key
+ * long    dateWatermark
+ * long    generationWatermark
+ * int     watermarkRowCount
+ * watermarkRowCount × { long id; long dateModified }
+ * int     count
+ * count × { long id; item }
+ * </pre>
+ * 其中 item 由 {@link MediaStoreHelper.SnapshotCodec} 负责读写。读取快照时会将文件映射到内存，避免额外的拷贝。
+ */
+final class ScanSnapshot<T> {
+    private static final int MAGIC = 0x4D534853;    // "MSHS"
+    private static final int FORMAT_VERSION = 2;
+
+    final long dateWatermark;
+    final long generationWatermark;
+    final Map<Long, Long> watermarkRows;
+    final LinkedHashMap<Long, T> items;
+
+    ScanSnapshot(long dateWatermark,
+                 long generationWatermark,
+                 Map<Long, Long> watermarkRows,
+                 LinkedHashMap<Long, T> items) {
+        this.dateWatermark = dateWatermark;
+        this.generationWatermark = generationWatermark;
+        this.watermarkRows = watermarkRows;
+        this.items = items;
+    }
+
+    /**
+     * 读取快照。
+     * <p>
+     * codec 在读取时抛出的任何 RuntimeException 都会被视为快照已损坏。
+     *
+     * @return 如果快照文件不存在、已损坏或者 key 不匹配，则返回 null
+     */
+    @Nullable
+    static <T> ScanSnapshot<T> read(@NonNull File file,
+                                    @NonNull String key,
+                                    @NonNull MediaStoreHelper.SnapshotCodec<T> codec) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBufferInput in = new ByteBufferInput(buffer);
+
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !key.equals(in.readUTF())) {
+                return null;
+            }
+
+            long dateWatermark = in.readLong();
+            long generationWatermark = in.readLong();
+
+            int watermarkRowCount = in.readInt();
+            Map<Long, Long> watermarkRows = new HashMap<>();
+            for (int i = 0; i < watermarkRowCount; i++) {
+                long id = in.readLong();
+                watermarkRows.put(id, in.readLong());
+            }
+
+            int count = in.readInt();
+
+            LinkedHashMap<Long, T> items = new LinkedHashMap<>(Math.max(count * 4 / 3 + 1, 16));
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                items.put(id, codec.read(in));
+            }
+
+            return new ScanSnapshot<>(dateWatermark, generationWatermark, watermarkRows, items);
+        } catch (IOException | RuntimeException e) {
+            // 快照已损坏（或者是由不兼容的 codec 写入的），忽略即可，下一次扫描完成后会重新写入
+            return null;
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * 将快照写入到文件中。
+     * <p>
+     * 会先写入一个临时文件，然后再将其重命名为目标文件，避免进程在写入过程中被杀死时损坏已有的快照。
+     */
+    void write(@NonNull File file,
+               @NonNull String key,
+               @NonNull MediaStoreHelper.SnapshotCodec<T> codec) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("failed to create directory: " + dir);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeLong(dateWatermark);
+            out.writeLong(generationWatermark);
+
+            out.writeInt(watermarkRows.size());
+            for (Map.Entry<Long, Long> entry : watermarkRows.entrySet()) {
+                out.writeLong(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+
+            out.writeInt(items.size());
+
+            for (Map.Entry<Long, T> entry : items.entrySet()) {
+                out.writeLong(entry.getKey());
+                codec.write(entry.getValue(), out);
+            }
+        } finally {
+            out.close();
+        }
+
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("failed to rename " + tmp + " to " + file);
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile raf) {
+        if (raf == null) {
+            return;
+        }
+
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * 基于 ByteBuffer 的 DataInput 实现，数据格式与 DataOutputStream 一致。
+     */
+    private static final class ByteBufferInput implements DataInput {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInput(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public void readFully(@NonNull byte[] b) {
+            mBuffer.get(b);
+        }
+
+        @Override
+        public void readFully(@NonNull byte[] b, int off, int len) {
+            mBuffer.get(b, off, len);
+        }
+
+        @Override
+        public int skipBytes(int n) {
+            int skip = Math.min(n, mBuffer.remaining());
+            mBuffer.position(mBuffer.position() + skip);
+            return skip;
+        }
+
+        @Override
+        public boolean readBoolean() {
+            return mBuffer.get() != 0;
+        }
+
+        @Override
+        public byte readByte() {
+            return mBuffer.get();
+        }
+
+        @Override
+        public int readUnsignedByte() {
+            return mBuffer.get() & 0xFF;
+        }
+
+        @Override
+        public short readShort() {
+            return mBuffer.getShort();
+        }
+
+        @Override
+        public int readUnsignedShort() {
+            return mBuffer.getShort() & 0xFFFF;
+        }
+
+        @Override
+        public char readChar() {
+            return mBuffer.getChar();
+        }
+
+        @Override
+        public int readInt() {
+            return mBuffer.getInt();
+        }
+
+        @Override
+        public long readLong() {
+            return mBuffer.getLong();
+        }
+
+        @Override
+        public float readFloat() {
+            return mBuffer.getFloat();
+        }
+
+        @Override
+        public double readDouble() {
+            return mBuffer.getDouble();
+        }
+
+        @Override
+        public String readLine() {
+            // 与 DataInputStream.readLine() 相同：每个字节转换为一个字符，行以 \n、\r 或 \r\n 结尾
+            if (!mBuffer.hasRemaining()) {
+                return null;
+            }
+
+            StringBuilder line = new StringBuilder();
+            while (mBuffer.hasRemaining()) {
+                int c = mBuffer.get() & 0xFF;
+                if (c == '\n') {
+                    break;
+                }
+
+                if (c == '\r') {
+                    if (mBuffer.hasRemaining() && mBuffer.get(mBuffer.position()) == '\n') {
+                        mBuffer.get();
+                    }
+                    break;
+                }
+
+                line.append((char) c);
+            }
+            return line.toString();
+        }
+
+        @NonNull
+        @Override
+        public String readUTF() throws IOException {
+            return DataInputStream.readUTF(this);
+        }
+    }
+}
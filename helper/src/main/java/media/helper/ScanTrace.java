@@ -0,0 +1,69 @@
+package media.helper;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 为扫描过程添加 systrace/Perfetto 区段。
+ * <p>
+ * 默认关闭，调用 {@link MediaStoreHelper#setTraceEnabled(boolean)} 方法开启。关闭时每个区段的开销只是一次
+ * volatile 读。{@link #begin(String)} 方法返回是否真正开始了一个区段，调用者需要将其传给 {@link #end(boolean)}
+ * 方法，这样在区段的中途切换开关也不会导致 beginSection 与 endSection 不匹配。
+ */
+final class ScanTrace {
+    static final String SCAN = "MediaStoreHelper.scan";
+    static final String QUERY = "MediaStoreHelper.query";
+    static final String ITERATE = "MediaStoreHelper.iterate";
+    static final String DECODE = "MediaStoreHelper.decode";
+    static final String DELIVER = "MediaStoreHelper.deliver";
+
+    private static volatile boolean sEnabled;
+
+    private ScanTrace() {
+        throw new AssertionError();
+    }
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * 在当前线程中开始一个区段。
+     *
+     * @return 是否真正开始了一个区段
+     */
+    static boolean begin(String name) {
+        if (!sEnabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return false;
+        }
+
+        Trace.beginSection(name);
+        return true;
+    }
+
+    static void end(boolean begun) {
+        if (begun && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    /**
+     * 开始一个异步区段，异步区段可以在与开始时不同的线程中结束。异步区段需要 Android 10（API 29）及以上版本。
+     *
+     * @return 是否真正开始了一个异步区段
+     */
+    static boolean beginAsync(String name, int cookie) {
+        if (!sEnabled || Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return false;
+        }
+
+        Trace.beginAsyncSection(name, cookie);
+        return true;
+    }
+
+    static void endAsync(boolean begun, String name, int cookie) {
+        if (begun && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(name, cookie);
+        }
+    }
+}
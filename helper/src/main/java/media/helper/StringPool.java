@@ -0,0 +1,89 @@
+package media.helper;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 字符串池，用于对扫描结果中大量重复的字符串（例如歌手名、专辑名、MIME 类型）去重。
+ * <p>
+ * 相同的字符串只会保存一个实例，并被分配一个从 0 开始的连续编号。扫描器会为每次扫描创建一个字符串池，并让
+ * 本次扫描中的所有 Cursor（分页扫描时的每一页、并行解码时的每一个行快照、多存储卷扫描时的每一个存储卷）共享
+ * 这个字符串池。该类是线程安全的：查找已在池中的字符串不需要加锁，只有加入新的字符串时才需要加锁。
+ */
+final class StringPool {
+    private final ConcurrentMap<String, Integer> mIndexes;
+    // 先写入 mValues 再写入 mIndexes，因此从 mIndexes 中读取到的编号在 mValues 中一定是可见的
+    private volatile String[] mValues;
+    private int mSize;
+
+    StringPool() {
+        mIndexes = new ConcurrentHashMap<>();
+        mValues = new String[16];
+    }
+
+    /**
+     * 返回池中与 value 相等的字符串实例。如果字符串不在池中，则先将其加入池中。
+     *
+     * @param value 要去重的字符串，可以为 null
+     * @return 池中与 value 相等的字符串实例，value 为 null 时返回 null
+     */
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        // 必须先获取编号再读取 mValues：加入新的字符串时 mValues 可能会被替换为一个更大的数组
+        int index = indexOf(value);
+        return mValues[index];
+    }
+
+    /**
+     * 返回字符串在池中的编号，如果字符串不在池中，则先将其加入池中。null 的编号始终为 -1。
+     */
+    int indexOf(String value) {
+        if (value == null) {
+            return -1;
+        }
+
+        Integer index = mIndexes.get(value);
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            index = mIndexes.get(value);
+            if (index == null) {
+                index = append(value);
+                mIndexes.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    // 只会在持有锁时调用
+    private int append(String value) {
+        String[] values = mValues;
+        if (mSize == values.length) {
+            values = Arrays.copyOf(values, mSize * 2);
+        }
+
+        values[mSize] = value;
+        mValues = values;
+        return mSize++;
+    }
+
+    /**
+     * 池中字符串的数量。
+     */
+    synchronized int size() {
+        return mSize;
+    }
+
+    /**
+     * 按编号的顺序返回池中的所有字符串。
+     */
+    synchronized String[] toArray() {
+        return Arrays.copyOf(mValues, mSize);
+    }
+}
@@ -0,0 +1,78 @@
+package media.helper;
+
+import android.database.Cursor;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class BaseScannerTest {
+    private static final int ROWS = 10;
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final MediaStoreHelper.OnScanCallback<Integer> CALLBACK = new MediaStoreHelper.OnScanCallback<Integer>() {
+        @Override
+        public void onStartScan() {
+        }
+
+        @Override
+        public void onUpdateProgress(int progress, int max, Integer item) {
+        }
+
+        @Override
+        public void onFinished(List<Integer> items) {
+        }
+    };
+
+    @Test
+    public void scan_canStartAgainAfterDecoderFailure() {
+        FailingDecoder decoder = new FailingDecoder();
+        decoder.failing = true;
+
+        MediaStoreHelper.BaseScanner<Integer> scanner = (MediaStoreHelper.BaseScanner<Integer>)
+                MediaStoreHelper.scanAudio(FakeContentResolver.of(FakeCursor.audio(ROWS)), decoder)
+                        .executor(DIRECT_EXECUTOR);
+
+        // 扫描任务在调用线程中执行，因此 Decoder 抛出的异常会从 scan 方法中抛出
+        try {
+            scanner.scan(CALLBACK);
+            fail("expected the decoder failure to be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals("decoder failure", e.getMessage());
+        }
+
+        assertFalse(scanner.isRunning());
+        assertTrue(scanner.isCancelled());
+
+        // 失败的扫描已离开 sInFlightScans，新的扫描不会加入它，而是会重新遍历 Cursor
+        decoder.failing = false;
+        decoder.decoded = 0;
+        scanner.scan(CALLBACK);
+
+        assertEquals(ROWS, decoder.decoded);
+    }
+
+    private static class FailingDecoder extends MediaStoreHelper.Decoder<Integer> {
+        volatile boolean failing;
+        int decoded;
+
+        @Override
+        public Integer decode(Cursor cursor) {
+            if (failing) {
+                throw new IllegalStateException("decoder failure");
+            }
+
+            decoded++;
+            return getId(cursor);
+        }
+    }
+}
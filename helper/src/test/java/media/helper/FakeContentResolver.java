@@ -0,0 +1,52 @@
+package media.helper;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.CancellationSignal;
+
+import org.mockito.ArgumentMatchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 创建查询结果来自 {@link FakeCursor} 的 ContentResolver，用于在 JVM 上运行扫描器。
+ * <p>
+ * 单元测试中的 android.jar 只包含空实现（方法的 final 修饰符也已被移除），因此这里使用 Mockito 模拟
+ * ContentResolver 的查询方法。
+ */
+final class FakeContentResolver {
+    private FakeContentResolver() {
+        throw new AssertionError();
+    }
+
+    /**
+     * 创建一个 ContentResolver，每次查询都会忽略查询参数，并返回 cursor 的一个新副本。
+     */
+    static ContentResolver of(final FakeCursor cursor) {
+        ContentResolver resolver = mock(ContentResolver.class);
+        Answer<Cursor> answer = new Answer<Cursor>() {
+            @Override
+            public Cursor answer(InvocationOnMock invocation) {
+                return cursor.copy();
+            }
+        };
+
+        when(resolver.query(ArgumentMatchers.<Uri>any(),
+                ArgumentMatchers.<String[]>any(),
+                ArgumentMatchers.<String>any(),
+                ArgumentMatchers.<String[]>any(),
+                ArgumentMatchers.<String>any())).thenAnswer(answer);
+        when(resolver.query(ArgumentMatchers.<Uri>any(),
+                ArgumentMatchers.<String[]>any(),
+                ArgumentMatchers.<String>any(),
+                ArgumentMatchers.<String[]>any(),
+                ArgumentMatchers.<String>any(),
+                ArgumentMatchers.<CancellationSignal>any())).thenAnswer(answer);
+
+        return resolver;
+    }
+}
@@ -0,0 +1,334 @@
+package media.helper;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.net.Uri;
+import android.os.Bundle;
+
+/**
+ * 基于内存数据的 Cursor，用于在 JVM 上运行单元测试与基准测试（单元测试中的 android.jar 只包含空实现）。
+ * <p>
+ * 行为与 MediaStore 返回的 Cursor 保持一致：{@link #getColumnIndex(String)} 与 AbstractCursor 一样线性比较
+ * 所有列名；{@link #getString(int)} 与 CursorWindow 一样每次调用都会返回一个新的 String 实例。
+ */
+class FakeCursor implements Cursor {
+    static final String[] AUDIO_COLUMNS = {
+            "_id",
+            "title",
+            "artist",
+            "artist_id",
+            "album",
+            "album_id",
+            "duration",
+            "_size",
+            "mime_type",
+            "date_added",
+            "date_modified",
+            "_display_name",
+            "track",
+            "year"
+    };
+
+    private static final int ARTIST_COUNT = 100;
+    private static final int ALBUM_COUNT = 1000;
+
+    private final String[] mColumnNames;
+    private final Object[][] mRows;
+    private int mPosition = -1;
+    private boolean mClosed;
+
+    FakeCursor(String[] columnNames, Object[][] rows) {
+        mColumnNames = columnNames;
+        mRows = rows;
+    }
+
+    /**
+     * 创建一个包含 rowCount 行音频数据的 FakeCursor，列名与 MediaStore 的音频表相同。歌手与专辑分别只有
+     * 100 个与 1000 个不同的值。
+     */
+    static FakeCursor audio(int rowCount) {
+        Object[][] rows = new Object[rowCount][];
+        for (int id = 0; id < rowCount; id++) {
+            int artist = id % ARTIST_COUNT;
+            int album = id % ALBUM_COUNT;
+            rows[id] = new Object[]{
+                    id,
+                    "Title " + id,
+                    "Artist " + artist,
+                    artist,
+                    "Album " + album,
+                    album,
+                    180_000 + id % 60_000,
+                    4_000_000 + id,
+                    "audio/mpeg",
+                    1_600_000_000 + id,
+                    1_600_000_000 + id,
+                    "track_" + id + ".mp3",
+                    id % 20 + 1,
+                    1990 + id % 30
+            };
+        }
+        return new FakeCursor(AUDIO_COLUMNS, rows);
+    }
+
+    /**
+     * 返回一个共享相同数据的新 FakeCursor（扫描器会关闭查询得到的 Cursor，因此每次查询都需要一个新的副本）。
+     */
+    FakeCursor copy() {
+        return new FakeCursor(mColumnNames, mRows);
+    }
+
+    private Object get(int column) {
+        if (mPosition < 0 || mPosition >= mRows.length) {
+            throw new IllegalStateException("cursor is not positioned on a row: " + mPosition);
+        }
+        return mRows[mPosition][column];
+    }
+
+    @Override
+    public int getCount() {
+        return mRows.length;
+    }
+
+    @Override
+    public int getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(mPosition + offset);
+    }
+
+    @Override
+    public boolean moveToPosition(int position) {
+        if (position >= mRows.length) {
+            mPosition = mRows.length;
+            return false;
+        }
+
+        if (position < 0) {
+            mPosition = -1;
+            return false;
+        }
+
+        mPosition = position;
+        return true;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(mRows.length - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(mPosition + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(mPosition - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return mPosition == 0 && mRows.length != 0;
+    }
+
+    @Override
+    public boolean isLast() {
+        return mPosition == mRows.length - 1 && mRows.length != 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return mRows.length == 0 || mPosition == -1;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return mRows.length == 0 || mPosition == mRows.length;
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        // 与 AbstractCursor 相同：忽略表名前缀，并且不区分大小写
+        int periodIndex = columnName.lastIndexOf('.');
+        if (periodIndex != -1) {
+            columnName = columnName.substring(periodIndex + 1);
+        }
+
+        for (int i = 0; i < mColumnNames.length; i++) {
+            if (mColumnNames[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) throws IllegalArgumentException {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return mColumnNames[columnIndex];
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mColumnNames;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return mColumnNames.length;
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        return (byte[]) get(columnIndex);
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        Object value = get(columnIndex);
+        // 与 CursorWindow 一样，每次都返回一个新的 String 实例
+        return value == null ? null : new String(value.toString().toCharArray());
+    }
+
+    @Override
+    public void copyStringToBuffer(int columnIndex, CharArrayBuffer buffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        return (short) getLong(columnIndex);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return (float) getDouble(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value == null) {
+            return 0;
+        }
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
+    }
+
+    @Override
+    public int getType(int columnIndex) {
+        Object value = get(columnIndex);
+        if (value == null) {
+            return FIELD_TYPE_NULL;
+        } else if (value instanceof byte[]) {
+            return FIELD_TYPE_BLOB;
+        } else if (value instanceof Float || value instanceof Double) {
+            return FIELD_TYPE_FLOAT;
+        } else if (value instanceof Number) {
+            return FIELD_TYPE_INTEGER;
+        }
+        return FIELD_TYPE_STRING;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return get(columnIndex) == null;
+    }
+
+    @Override
+    public void deactivate() {
+    }
+
+    @Override
+    public boolean requery() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        mClosed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return mClosed;
+    }
+
+    @Override
+    public void registerContentObserver(ContentObserver observer) {
+    }
+
+    @Override
+    public void unregisterContentObserver(ContentObserver observer) {
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+    }
+
+    @Override
+    public void setNotificationUri(ContentResolver cr, Uri uri) {
+    }
+
+    @Override
+    public Uri getNotificationUri() {
+        return null;
+    }
+
+    @Override
+    public boolean getWantsAllOnMoveCalls() {
+        return false;
+    }
+
+    @Override
+    public void setExtras(Bundle extras) {
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return null;
+    }
+
+    @Override
+    public Bundle respond(Bundle extras) {
+        return null;
+    }
+}
@@ -0,0 +1,51 @@
+package media.helper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IncrementalScannerTest {
+    private static final long[] EMPTY = new long[0];
+
+    @Test
+    public void subtract_returnsRemovedIds() {
+        long[] known = {1, 2, 3, 5, 8};
+        long[] current = {2, 3, 4, 8};
+
+        assertArrayEquals(new long[]{1, 5}, MediaStoreHelper.IncrementalScanner.subtract(known, current));
+    }
+
+    @Test
+    public void subtract_emptyCurrentRemovesAll() {
+        long[] known = {1, 2};
+
+        assertArrayEquals(known, MediaStoreHelper.IncrementalScanner.subtract(known, EMPTY));
+    }
+
+    @Test
+    public void subtract_nothingRemoved() {
+        long[] known = {1, 2};
+        long[] current = {0, 1, 2, 3};
+
+        assertArrayEquals(EMPTY, MediaStoreHelper.IncrementalScanner.subtract(known, current));
+    }
+
+    @Test
+    public void retain_keepsKnownAndChangedIds() {
+        long[] current = {1, 2, 3, 4, 5};
+        long[] known = {1, 3};
+        long[] changed = {4};
+
+        // 2 与 5 是在两次查询之间新增的行，还未被报告，因此不会被记住
+        assertArrayEquals(new long[]{1, 3, 4}, MediaStoreHelper.IncrementalScanner.retain(current, known, changed));
+    }
+
+    @Test
+    public void retain_dropsIdsMissingFromCurrent() {
+        long[] current = {3};
+        long[] known = {1, 3};
+        long[] changed = {2};
+
+        assertArrayEquals(new long[]{3}, MediaStoreHelper.IncrementalScanner.retain(current, known, changed));
+    }
+}
@@ -0,0 +1,172 @@
+package media.helper;
+
+import android.database.Cursor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MediaFilterTest {
+    private static final String[] NO_ARGS = new String[0];
+
+    @Test
+    public void isMusic_comparesColumnWithZero() {
+        MediaFilter filter = MediaFilter.isMusic();
+
+        assertEquals("is_music!=0", filter.getSelection());
+        assertArrayEquals(NO_ARGS, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void durationAtLeast_passesValueAsArg() {
+        MediaFilter filter = MediaFilter.durationAtLeast(30_000);
+
+        assertEquals("duration>=?", filter.getSelection());
+        assertArrayEquals(new String[]{"30000"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void sizeAtMost_passesValueAsArg() {
+        MediaFilter filter = MediaFilter.sizeAtMost(1024);
+
+        assertEquals("_size<=?", filter.getSelection());
+        assertArrayEquals(new String[]{"1024"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void mimeType_buildsInClause() {
+        MediaFilter filter = MediaFilter.mimeType("audio/mpeg", "audio/flac");
+
+        assertEquals("mime_type IN (?,?)", filter.getSelection());
+        assertArrayEquals(new String[]{"audio/mpeg", "audio/flac"}, filter.getSelectionArgs());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void mimeType_rejectsEmpty() {
+        MediaFilter.mimeType();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void mimeType_rejectsNullElement() {
+        MediaFilter.mimeType("audio/mpeg", null);
+    }
+
+    @Test
+    public void mimeType_copiesArgs() {
+        String[] mimeTypes = {"audio/mpeg"};
+        MediaFilter filter = MediaFilter.mimeType(mimeTypes);
+        mimeTypes[0] = "audio/flac";
+
+        assertArrayEquals(new String[]{"audio/mpeg"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void mimeTypeStartsWith_appendsWildcard() {
+        MediaFilter filter = MediaFilter.mimeTypeStartsWith("audio/");
+
+        assertEquals("mime_type LIKE ? ESCAPE '\\'", filter.getSelection());
+        assertArrayEquals(new String[]{"audio/%"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void pathContains_escapesLikeWildcards() {
+        MediaFilter filter = MediaFilter.pathContains("50%_off\\");
+
+        assertEquals("_data LIKE ? ESCAPE '\\'", filter.getSelection());
+        assertArrayEquals(new String[]{"%50\\%\\_off\\\\%"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void pathStartsWith_appendsWildcard() {
+        MediaFilter filter = MediaFilter.pathStartsWith("/sdcard/Music/");
+
+        assertArrayEquals(new String[]{"/sdcard/Music/%"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void not_wrapsSelectionAndKeepsArgs() {
+        MediaFilter filter = MediaFilter.not(MediaFilter.durationAtMost(5));
+
+        assertEquals("NOT (duration<=?)", filter.getSelection());
+        assertArrayEquals(new String[]{"5"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void and_or_keepArgsInSelectionOrder() {
+        MediaFilter filter = MediaFilter.isMusic()
+                .and(MediaFilter.durationAtLeast(1))
+                .or(MediaFilter.not(MediaFilter.mimeType("a", "b")));
+
+        assertEquals("((is_music!=0) AND (duration>=?)) OR (NOT (mime_type IN (?,?)))", filter.getSelection());
+        assertArrayEquals(new String[]{"1", "a", "b"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void anyOf_joinsAllFilters() {
+        MediaFilter filter = MediaFilter.anyOf(
+                MediaFilter.sizeAtLeast(1),
+                MediaFilter.sizeAtMost(2),
+                MediaFilter.dateAddedAtLeast(3));
+
+        assertEquals("(_size>=?) OR (_size<=?) OR (date_added>=?)", filter.getSelection());
+        assertArrayEquals(new String[]{"1", "2", "3"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void allOf_singleFilterReturnsItself() {
+        MediaFilter filter = MediaFilter.isPodcast();
+
+        assertSame(filter, MediaFilter.allOf(filter));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void allOf_rejectsEmpty() {
+        MediaFilter.allOf();
+    }
+
+    @Test
+    public void getSelectionArgs_returnsCopy() {
+        MediaFilter filter = MediaFilter.durationAtLeast(1);
+        filter.getSelectionArgs()[0] = "2";
+
+        assertArrayEquals(new String[]{"1"}, filter.getSelectionArgs());
+    }
+
+    @Test
+    public void applyTo_replacesExistingSelection() {
+        RecordingScanner scanner = new RecordingScanner();
+        scanner.selection("title=?")
+                .selectionArgs(new String[]{"a"});
+
+        MediaFilter.durationAtLeast(1).applyTo(scanner);
+
+        assertEquals("duration>=?", scanner.selection);
+        assertArrayEquals(new String[]{"1"}, scanner.selectionArgs);
+    }
+
+    private static class RecordingScanner extends MediaStoreHelper.BaseScanner<String> {
+        String selection;
+        String[] selectionArgs;
+
+        RecordingScanner() {
+            super(null, FakeContentResolver.of(FakeCursor.audio(0)), new MediaStoreHelper.Decoder<String>() {
+                @Override
+                public String decode(Cursor cursor) {
+                    return getTitle(cursor);
+                }
+            });
+        }
+
+        @Override
+        public MediaStoreHelper.Scanner<String> selection(String selection) {
+            this.selection = selection;
+            return super.selection(selection);
+        }
+
+        @Override
+        public MediaStoreHelper.Scanner<String> selectionArgs(String[] args) {
+            selectionArgs = args;
+            return super.selectionArgs(args);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package media.helper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MultiVolumeScannerTest {
+    private static final Comparator<Integer> ASCENDING = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+            return a.compareTo(b);
+        }
+    };
+
+    @Test
+    public void merge_withoutComparatorConcatenatesInVolumeOrder() {
+        List<List<Integer>> lists = Arrays.asList(
+                Arrays.asList(3, 1),
+                null,
+                Arrays.asList(2));
+
+        assertEquals(Arrays.asList(3, 1, 2), MediaStoreHelper.MultiVolumeScanner.merge(lists, null));
+    }
+
+    @Test
+    public void merge_withComparatorMergesSortedLists() {
+        List<List<Integer>> lists = Arrays.asList(
+                Arrays.asList(1, 4, 7),
+                Arrays.asList(2, 5, 8),
+                Collections.<Integer>emptyList(),
+                Arrays.asList(3, 6, 9));
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9),
+                MediaStoreHelper.MultiVolumeScanner.merge(lists, ASCENDING));
+    }
+
+    @Test
+    public void merge_isStableAcrossVolumes() {
+        // 比较器只比较字符串的长度，长度相同时应保持存储卷的顺序
+        Comparator<String> byLength = new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return a.length() - b.length();
+            }
+        };
+
+        List<List<String>> lists = Arrays.asList(
+                Arrays.asList("b1", "b22"),
+                Arrays.asList("a1", "a22"));
+
+        assertEquals(Arrays.asList("b1", "a1", "b22", "a22"),
+                MediaStoreHelper.MultiVolumeScanner.merge(lists, byLength));
+    }
+
+    @Test
+    public void merge_handlesNullAndEmptyInput() {
+        List<List<Integer>> lists = new ArrayList<>();
+        lists.add(null);
+
+        assertTrue(MediaStoreHelper.MultiVolumeScanner.merge(lists, ASCENDING).isEmpty());
+        assertTrue(MediaStoreHelper.MultiVolumeScanner.merge(new ArrayList<List<Integer>>(), ASCENDING).isEmpty());
+    }
+}
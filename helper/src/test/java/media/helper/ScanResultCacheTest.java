@@ -0,0 +1,60 @@
+package media.helper;
+
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class ScanResultCacheTest {
+    private static final List<String> ITEMS = Arrays.asList("a", "b");
+
+    private ScanResultCache mCache;
+    private MediaStoreHelper.QueryKey mKey;
+
+    @Before
+    public void setUp() {
+        mCache = new ScanResultCache(FakeContentResolver.of(FakeCursor.audio(0)), 1024);
+        mKey = new MediaStoreHelper.QueryKey(mock(Uri.class), null, null, null, null, "decoder");
+    }
+
+    @Test
+    public void put_cachesWhenVersionUnchanged() {
+        long version = mCache.getVersion(mKey.getUri());
+        mCache.put(mKey, version, ITEMS, 16);
+
+        assertEquals(ITEMS, mCache.get(mKey));
+    }
+
+    @Test
+    public void put_ignoresScanStartedBeforeInvalidate() {
+        long version = mCache.getVersion(mKey.getUri());
+        mCache.invalidate(mKey.getUri());
+        mCache.put(mKey, version, ITEMS, 16);
+
+        assertNull(mCache.get(mKey));
+    }
+
+    @Test
+    public void put_ignoresScanStartedBeforeClear() {
+        // 第一次读取版本号之后立即清空缓存，此时该 Uri 还没有被 invalidate 过
+        long version = mCache.getVersion(mKey.getUri());
+        mCache.clear();
+        mCache.put(mKey, version, ITEMS, 16);
+
+        assertNull(mCache.get(mKey));
+    }
+
+    @Test
+    public void put_ignoresResultLargerThanCache() {
+        long version = mCache.getVersion(mKey.getUri());
+        mCache.put(mKey, version, ITEMS, 2048);
+
+        assertNull(mCache.get(mKey));
+    }
+}
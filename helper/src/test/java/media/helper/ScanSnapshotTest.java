@@ -0,0 +1,144 @@
+package media.helper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ScanSnapshotTest {
+    private static final String KEY = "content://media/external/audio/media|null|null||1";
+
+    private static final MediaStoreHelper.SnapshotCodec<String> CODEC = new MediaStoreHelper.SnapshotCodec<String>() {
+        @Override
+        public void write(String item, DataOutput out) throws IOException {
+            out.writeUTF(item);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeThenRead_roundTrips() throws IOException {
+        File file = new File(folder.getRoot(), "songs.snapshot");
+
+        LinkedHashMap<Long, String> items = new LinkedHashMap<>();
+        items.put(3L, "c");
+        items.put(1L, "a");
+        items.put(2L, "中文");
+
+        Map<Long, Long> watermarkRows = new HashMap<>();
+        watermarkRows.put(3L, 1600000000L);
+
+        new ScanSnapshot<>(1600000000L, 42L, watermarkRows, items).write(file, KEY, CODEC);
+        ScanSnapshot<String> snapshot = ScanSnapshot.read(file, KEY, CODEC);
+
+        assertNotNull(snapshot);
+        assertEquals(1600000000L, snapshot.dateWatermark);
+        assertEquals(42L, snapshot.generationWatermark);
+        assertEquals(watermarkRows, snapshot.watermarkRows);
+        assertEquals(items, snapshot.items);
+        // 读取后应保持写入时的顺序
+        assertEquals(new ArrayList<>(items.keySet()), new ArrayList<>(snapshot.items.keySet()));
+    }
+
+    @Test
+    public void read_missingFileReturnsNull() {
+        assertNull(ScanSnapshot.read(new File(folder.getRoot(), "missing.snapshot"), KEY, CODEC));
+    }
+
+    @Test
+    public void read_keyMismatchReturnsNull() throws IOException {
+        File file = new File(folder.getRoot(), "songs.snapshot");
+        writeSnapshot(file);
+
+        assertNull(ScanSnapshot.read(file, KEY + "|2", CODEC));
+    }
+
+    @Test
+    public void read_codecFailureReturnsNull() throws IOException {
+        File file = new File(folder.getRoot(), "songs.snapshot");
+        writeSnapshot(file);
+
+        MediaStoreHelper.SnapshotCodec<String> incompatible = new MediaStoreHelper.SnapshotCodec<String>() {
+            @Override
+            public void write(String item, DataOutput out) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public String read(DataInput in) {
+                throw new IllegalStateException("incompatible format");
+            }
+        };
+
+        assertNull(ScanSnapshot.read(file, KEY, incompatible));
+    }
+
+    @Test
+    public void read_truncatedFileReturnsNull() throws IOException {
+        File file = new File(folder.getRoot(), "songs.snapshot");
+        writeSnapshot(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 1);
+        } finally {
+            raf.close();
+        }
+
+        assertNull(ScanSnapshot.read(file, KEY, CODEC));
+    }
+
+    @Test
+    public void read_codecCanReadLines() throws IOException {
+        File file = new File(folder.getRoot(), "songs.snapshot");
+
+        MediaStoreHelper.SnapshotCodec<String> lines = new MediaStoreHelper.SnapshotCodec<String>() {
+            @Override
+            public void write(String item, DataOutput out) throws IOException {
+                out.writeBytes(item);
+            }
+
+            @Override
+            public String read(DataInput in) throws IOException {
+                return in.readLine() + "|" + in.readLine();
+            }
+        };
+
+        LinkedHashMap<Long, String> items = new LinkedHashMap<>();
+        items.put(1L, "a\r\nb\n");
+        items.put(2L, "c\rd\r\n");
+        new ScanSnapshot<>(0, 0, new HashMap<Long, Long>(), items).write(file, KEY, lines);
+
+        ScanSnapshot<String> snapshot = ScanSnapshot.read(file, KEY, lines);
+
+        assertNotNull(snapshot);
+        assertEquals("a|b", snapshot.items.get(1L));
+        assertEquals("c|d", snapshot.items.get(2L));
+    }
+
+    private static void writeSnapshot(File file) throws IOException {
+        LinkedHashMap<Long, String> items = new LinkedHashMap<>();
+        items.put(1L, "a");
+        items.put(2L, "b");
+
+        new ScanSnapshot<>(0, 0, new HashMap<Long, Long>(), items).write(file, KEY, CODEC);
+    }
+}
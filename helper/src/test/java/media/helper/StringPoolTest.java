@@ -0,0 +1,142 @@
+package media.helper;
+
+import android.database.Cursor;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class StringPoolTest {
+    private static final int ROWS = 50_000;
+
+    private static final MediaStoreHelper.Decoder<String> ARTIST_DECODER = new MediaStoreHelper.Decoder<String>() {
+        @Override
+        public String decode(Cursor cursor) {
+            return getAudioArtist(cursor);
+        }
+
+        @Override
+        public String decode(Cursor cursor, MediaStoreHelper.Columns columns) {
+            return getAudioArtist(cursor, columns);
+        }
+    };
+
+    @Test
+    public void intern_returnsPooledInstance() {
+        StringPool pool = new StringPool();
+        String first = new String("artist");
+        String second = new String("artist");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertNull(pool.intern(null));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void indexOf_assignsConsecutiveIndexes() {
+        StringPool pool = new StringPool();
+
+        assertEquals(0, pool.indexOf("a"));
+        assertEquals(1, pool.indexOf("b"));
+        assertEquals(0, pool.indexOf(new String("a")));
+        assertEquals(-1, pool.indexOf(null));
+        assertArrayEquals(new String[]{"a", "b"}, pool.toArray());
+    }
+
+    @Test
+    public void intern_isThreadSafe() throws Exception {
+        final StringPool pool = new StringPool();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<List<String>>() {
+                    @Override
+                    public List<String> call() {
+                        List<String> interned = new ArrayList<>();
+                        for (int value = 0; value < 10_000; value++) {
+                            interned.add(pool.intern(String.valueOf(value % 1000)));
+                        }
+                        return interned;
+                    }
+                }));
+            }
+
+            Set<String> instances = identitySet();
+            for (Future<List<String>> future : futures) {
+                instances.addAll(future.get());
+            }
+
+            assertEquals(1000, instances.size());
+            assertEquals(1000, pool.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void scanBlocking_sharesArtistInstances() {
+        // 50000 行只有 100 个不同的歌手名，去重后只会保留 100 个 String 实例
+        List<String> artists = MediaStoreHelper.scanAudio(FakeContentResolver.of(FakeCursor.audio(ROWS)), ARTIST_DECODER)
+                .scanBlocking();
+
+        assertEquals(ROWS, artists.size());
+        assertEquals(100, distinctInstances(artists));
+    }
+
+    @Test
+    public void iterate_sharesArtistInstances() {
+        MediaStoreHelper.ScanIterator<String> iterator =
+                MediaStoreHelper.scanAudio(FakeContentResolver.of(FakeCursor.audio(ROWS)), ARTIST_DECODER)
+                        .iterate();
+
+        List<String> artists = new ArrayList<>();
+        try {
+            while (iterator.hasNext()) {
+                artists.add(iterator.next());
+            }
+        } finally {
+            iterator.close();
+        }
+
+        assertEquals(ROWS, artists.size());
+        assertEquals(100, distinctInstances(artists));
+    }
+
+    @Test
+    public void sharedPool_dedupesAcrossCursors() {
+        // 与多存储卷扫描一样，两个扫描器（两个 Cursor）共享同一个字符串池
+        StringPool pool = new StringPool();
+        List<String> artists = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            MediaStoreHelper.BaseScanner<String> scanner = (MediaStoreHelper.BaseScanner<String>)
+                    MediaStoreHelper.scanAudio(FakeContentResolver.of(FakeCursor.audio(ROWS)), ARTIST_DECODER);
+            artists.addAll(scanner.stringPool(pool).scanBlocking());
+        }
+
+        assertEquals(2 * ROWS, artists.size());
+        assertEquals(100, distinctInstances(artists));
+    }
+
+    private static int distinctInstances(List<String> values) {
+        Set<String> instances = identitySet();
+        instances.addAll(values);
+        return instances.size();
+    }
+
+    private static Set<String> identitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+    }
+}